@@ -0,0 +1,22 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.canonicalization")
+public class CanonicalizationSettings {
+    private List<String> trackingParameters = new ArrayList<>(List.of(
+            "utm_*", "gclid", "fbclid", "yclid", "_openstat", "mc_cid", "mc_eid"));
+    private List<String> indexFiles = new ArrayList<>(List.of(
+            "index.html", "index.htm", "index.php", "default.aspx"));
+    private boolean sortQueryParameters = true;
+    private boolean ignoreTrailingSlash = true;
+}
@@ -0,0 +1,18 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.discovery")
+public class DiscoverySettings {
+    private boolean enabled = true;
+    private int maxSitemapUrls = 100_000;
+    private int maxSitemapDepth = 3;
+    private long maxSitemapBytes = 50L * 1024 * 1024;
+    private int maxCrawlDelaySeconds = 30;
+}
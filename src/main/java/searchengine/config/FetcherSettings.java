@@ -0,0 +1,20 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.fetcher")
+public class FetcherSettings {
+    private int maxInFlight = 256;
+    private int connectTimeoutMs = 5000;
+    private int requestTimeoutMs = 10000;
+    private long maxBodyBytes = 5L * 1024 * 1024;
+    private List<String> htmlContentTypes = List.of("text/html", "application/xhtml+xml");
+}
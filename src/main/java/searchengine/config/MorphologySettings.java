@@ -0,0 +1,16 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.morphology")
+public class MorphologySettings {
+    private int russianCacheSize = 200_000;
+    private int englishCacheSize = 50_000;
+    private int lemmatizeThreads = Runtime.getRuntime().availableProcessors();
+}
@@ -0,0 +1,29 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.pipeline")
+public class PipelineSettings {
+    private int fetchParallelism = 64;
+    /**
+     * Сколько загрузок одного сайта конвейер держит одновременно. Запросы сверх
+     * politeness.max-in-flight-per-host ждут в очереди хоста и уходят сразу после ответа,
+     * не дожидаясь диспетчера. Общая параллельность — min(fetch-parallelism, число сайтов × это значение).
+     */
+    private int maxInFlightPerSite = 4;
+    private int extractThreads = Runtime.getRuntime().availableProcessors();
+    private int lemmatizeWorkers = 2;
+    private int lemmatizeBatchSize = 16;
+    private int writerThreads = 1;
+    private int queueCapacity = 500;
+    private int writeBatchSize = 50;
+    private int expectedUrlsPerSite = 100_000;
+    private int statisticsLogIntervalSeconds = 30;
+    private int checkpointIntervalSeconds = 10;
+}
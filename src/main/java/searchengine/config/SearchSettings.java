@@ -0,0 +1,16 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.search")
+public class SearchSettings {
+    private boolean postingIndexEnabled = true;
+    private long resultCacheMaxBytes = 64L * 1024 * 1024;
+    private int resultCacheDepth = 500;
+}
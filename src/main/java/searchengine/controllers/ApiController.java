@@ -5,7 +5,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import searchengine.dto.responses.IndexingResponse;
 import searchengine.dto.responses.SearchResults;
+import searchengine.dto.statistics.PipelineStatistics;
 import searchengine.dto.statistics.StatisticsResponse;
+import searchengine.pipeline.IndexingMode;
 import searchengine.services.IndexingService;
 import searchengine.services.SearchService;
 import searchengine.services.StatisticsService;
@@ -29,8 +31,14 @@ public class ApiController {
     }
 
     @GetMapping("/startIndexing")
-    public ResponseEntity<String> startIndexing() {
-        IndexingResponse response = indexingService.startIndexing();
+    public ResponseEntity<String> startIndexing(@RequestParam(defaultValue = "full") String mode) {
+        Optional<IndexingMode> indexingMode = IndexingMode.fromParameter(mode);
+        if (indexingMode.isEmpty()) {
+            return ResponseEntity.badRequest().body("'result': 'false'\n"
+                    + "'error': Неизвестный режим индексации: " + mode);
+        }
+
+        IndexingResponse response = indexingService.startIndexing(indexingMode.get());
 
         return response.isResult()
                 ? ResponseEntity.ok("'result': " + response.isResult())
@@ -55,6 +63,11 @@ public class ApiController {
         return ResponseEntity.ok(statisticsService.getStatistics());
     }
 
+    @GetMapping("/indexingPipeline")
+    public ResponseEntity<PipelineStatistics> indexingPipeline() {
+        return ResponseEntity.ok(indexingService.getPipelineStatistics());
+    }
+
     @GetMapping("/search")
     public ResponseEntity<SearchResults> search(
             @RequestParam String query,
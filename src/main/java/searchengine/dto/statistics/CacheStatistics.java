@@ -0,0 +1,15 @@
+package searchengine.dto.statistics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CacheStatistics {
+    private String name;
+    private int size;
+    private int capacity;
+    private long hits;
+    private long misses;
+    private double hitRate;
+}
@@ -0,0 +1,14 @@
+package searchengine.dto.statistics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class PipelineStatistics {
+    private boolean running;
+    private List<StageStatistics> stages;
+    private List<CacheStatistics> lemmaCaches;
+}
@@ -0,0 +1,17 @@
+package searchengine.dto.statistics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class StageStatistics {
+    private String name;
+    private int parallelism;
+    private int inFlight;
+    private int queueSize;
+    private int queueCapacity;
+    private long processed;
+    private long failed;
+    private double itemsPerSecond;
+}
@@ -0,0 +1,20 @@
+package searchengine.model;
+
+import searchengine.util.TextCompression;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String text) {
+        return TextCompression.compress(text);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] compressed) {
+        return TextCompression.decompress(compressed);
+    }
+}
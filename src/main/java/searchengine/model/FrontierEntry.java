@@ -0,0 +1,12 @@
+package searchengine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class FrontierEntry {
+    private final long urlHash;
+    private final String url;
+    private final boolean done;
+}
@@ -0,0 +1,12 @@
+package searchengine.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class IndexRow {
+    private final int pageId;
+    private final int lemmaId;
+    private final float rank;
+}
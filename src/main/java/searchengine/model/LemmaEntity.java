@@ -7,7 +7,8 @@ import org.hibernate.annotations.OnDeleteAction;
 import javax.persistence.*;
 
 @Entity
-@Table(name = "lemma")
+@Table(name = "lemma",
+        uniqueConstraints = @UniqueConstraint(name = "uk_lemma_site_lemma", columnNames = {"site_id", "lemma"}))
 @Getter
 @Setter
 @Builder
@@ -36,6 +36,22 @@ public class PageEntity {
     private int code;
 
     @NonNull
-    @Column(name = "content", columnDefinition = "MEDIUMTEXT", nullable = false)
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(name = "content", columnDefinition = "MEDIUMBLOB", nullable = false)
     private String content;
+
+    @Column(name = "title", columnDefinition = "TEXT")
+    private String title;
+
+    @Column(name = "text", columnDefinition = "MEDIUMTEXT")
+    private String text;
+
+    @Column(name = "etag", columnDefinition = "VARCHAR(255)")
+    private String etag;
+
+    @Column(name = "last_modified", columnDefinition = "VARCHAR(64)")
+    private String lastModified;
+
+    @Column(name = "content_hash", columnDefinition = "CHAR(64)")
+    private String contentHash;
 }
@@ -0,0 +1,43 @@
+package searchengine.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+
+/**
+ * Страницы, найденные по запросу: id по возрастанию и абсолютная релевантность каждой
+ * в параллельных массивах примитивов.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PageScores {
+    public static final PageScores EMPTY = new PageScores(new int[0], new float[0]);
+
+    private final int[] pageIds;
+    private final float[] relevance;
+
+    public int size() {
+        return pageIds.length;
+    }
+
+    public static class Builder {
+        private int[] pageIds = new int[256];
+        private float[] relevance = new float[256];
+        private int size;
+
+        public void add(int pageId, float pageRelevance) {
+            if (size == pageIds.length) {
+                pageIds = Arrays.copyOf(pageIds, size * 2);
+                relevance = Arrays.copyOf(relevance, size * 2);
+            }
+            pageIds[size] = pageId;
+            relevance[size] = pageRelevance;
+            size++;
+        }
+
+        public PageScores build() {
+            return new PageScores(Arrays.copyOf(pageIds, size), Arrays.copyOf(relevance, size));
+        }
+    }
+}
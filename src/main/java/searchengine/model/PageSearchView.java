@@ -0,0 +1,9 @@
+package searchengine.model;
+
+public interface PageSearchView {
+    Integer getId();
+    Integer getSiteId();
+    String getPath();
+    String getTitle();
+    String getText();
+}
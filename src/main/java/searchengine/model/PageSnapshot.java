@@ -0,0 +1,9 @@
+package searchengine.model;
+
+public interface PageSnapshot {
+    Integer getId();
+    String getPath();
+    String getEtag();
+    String getLastModified();
+    String getContentHash();
+}
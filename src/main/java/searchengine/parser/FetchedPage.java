@@ -0,0 +1,28 @@
+package searchengine.parser;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class FetchedPage {
+    private final String url;
+    private final int statusCode;
+    private final String contentType;
+    private final byte[] body;
+    private final String etag;
+    private final String lastModified;
+    private final String skipReason;
+
+    public FetchedPage(String url, int statusCode, String contentType, byte[] body,
+                       String etag, String lastModified) {
+        this(url, statusCode, contentType, body, etag, lastModified, null);
+    }
+
+    /**
+     * Тело не загружено: ответ не HTML или превышает допустимый размер.
+     */
+    public boolean isSkipped() {
+        return skipReason != null;
+    }
+}
@@ -0,0 +1,156 @@
+package searchengine.parser;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.PolitenessSettings;
+
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Очередь запросов с ограничением частоты и числа одновременных запросов к одному хосту.
+ * Запрос, для которого хост ещё не готов, ждёт в очереди хоста, не занимая рабочий поток,
+ * а запросы к другим хостам в это время отправляются без задержки.
+ */
+@Slf4j
+@Component
+public class HostPolitenessScheduler {
+
+    private final long intervalNanos;
+    private final int maxInFlightPerHost;
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "politeness-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HostPolitenessScheduler(PolitenessSettings settings) {
+        this.intervalNanos = settings.getRequestsPerSecond() > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) / settings.getRequestsPerSecond())
+                : 0;
+        this.maxInFlightPerHost = Math.max(1, settings.getMaxInFlightPerHost());
+        log.info("Ограничение запросов к хосту: интервал {} мс, не более {} одновременно",
+                TimeUnit.NANOSECONDS.toMillis(intervalNanos), maxInFlightPerHost);
+    }
+
+    public <T> CompletableFuture<T> submit(String url, Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        HostState hostState = getHostState(url);
+        synchronized (hostState) {
+            hostState.queue.add(() -> start(hostState, request, result));
+        }
+        dispatch(hostState);
+        return result;
+    }
+
+    /**
+     * Задаёт интервал между запросами к хосту по Crawl-delay из robots.txt; 0 — директивы нет,
+     * действует интервал из настроек. Интервал из настроек остаётся нижней границей.
+     */
+    public void applyCrawlDelay(String url, long delayNanos) {
+        HostState hostState = getHostState(url);
+        long hostIntervalNanos = Math.max(intervalNanos, delayNanos);
+        synchronized (hostState) {
+            if (hostState.intervalNanos == hostIntervalNanos) {
+                return;
+            }
+            hostState.intervalNanos = hostIntervalNanos;
+        }
+        log.info("Для хоста {} установлен интервал между запросами {} мс",
+                extractHost(url), TimeUnit.NANOSECONDS.toMillis(hostIntervalNanos));
+    }
+
+    private HostState getHostState(String url) {
+        return hosts.computeIfAbsent(extractHost(url), host -> new HostState(intervalNanos));
+    }
+
+    private <T> void start(HostState hostState, Supplier<CompletableFuture<T>> request, CompletableFuture<T> result) {
+        try {
+            request.get().whenComplete((value, error) -> {
+                release(hostState);
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            release(hostState);
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void release(HostState hostState) {
+        synchronized (hostState) {
+            hostState.inFlight--;
+        }
+        dispatch(hostState);
+    }
+
+    private void dispatch(HostState hostState) {
+        synchronized (hostState) {
+            while (!hostState.queue.isEmpty() && hostState.inFlight < maxInFlightPerHost) {
+                long now = System.nanoTime();
+                long delay = hostState.nextAllowedNanos - now;
+                if (delay > 0) {
+                    scheduleDispatch(hostState, delay);
+                    return;
+                }
+                Runnable task = hostState.queue.poll();
+                hostState.inFlight++;
+                hostState.nextAllowedNanos = now + hostState.intervalNanos;
+                dispatcher.execute(task);
+            }
+        }
+    }
+
+    private void scheduleDispatch(HostState hostState, long delayNanos) {
+        if (hostState.dispatchScheduled) {
+            return;
+        }
+        hostState.dispatchScheduled = true;
+        dispatcher.schedule(() -> {
+            synchronized (hostState) {
+                hostState.dispatchScheduled = false;
+            }
+            dispatch(hostState);
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private String extractHost(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private static class HostState {
+        private final Queue<Runnable> queue = new ArrayDeque<>();
+        private int inFlight;
+        private long nextAllowedNanos;
+        private boolean dispatchScheduled;
+        private long intervalNanos;
+
+        private HostState(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+        }
+    }
+}
@@ -1,34 +1,35 @@
 package searchengine.parser;
 
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Connection;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import searchengine.dto.responses.PageResponse;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
-import static java.lang.Thread.sleep;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Component
 public class HtmlLinkParser {
 
-    private final String userAgent;
-    private final String referrer;
+    private final HttpPageFetcher pageFetcher;
+    private final HostPolitenessScheduler politenessScheduler;
 
-    public HtmlLinkParser(@Value("${indexing-settings.user-agent}") String userAgent,
-                          @Value("${indexing-settings.referrer}") String referrer) {
-        this.userAgent = userAgent;
-        this.referrer = referrer;
+    public HtmlLinkParser(HttpPageFetcher pageFetcher,
+                          HostPolitenessScheduler politenessScheduler) {
+        this.pageFetcher = pageFetcher;
+        this.politenessScheduler = politenessScheduler;
     }
 
+    // Быстрый отсев по расширению до запроса; окончательно тип проверяется по Content-Type в HttpPageFetcher
     private static final Set<String> FILE_EXTENSIONS = Set.of(
             ".jpg", ".jpeg", ".png", ".gif", ".webp", ".pdf", ".eps",
             ".xlsx", ".doc", ".pptx", ".docx", ".zip", ".sql");
@@ -44,60 +45,58 @@ public class HtmlLinkParser {
         return url.startsWith("http://") || url.startsWith("https://");
     }
 
-    public ConcurrentLinkedQueue<String> parseLinks(String url) {
-        ConcurrentLinkedQueue<String> links = new ConcurrentLinkedQueue<>();
+    public CompletableFuture<FetchedPage> fetch(String url) {
+        return fetch(url, null, null);
+    }
+
+    public CompletableFuture<FetchedPage> fetch(String url, String etag, String lastModified) {
+        return politenessScheduler.submit(url, () -> pageFetcher.fetch(url, etag, lastModified));
+    }
+
+    public CompletableFuture<FetchedPage> fetchResource(String url, long maxBytes) {
+        return politenessScheduler.submit(url, () -> pageFetcher.fetchResource(url, maxBytes));
+    }
+
+    public Document parseDocument(String html, String url) {
+        return Jsoup.parse(html, url);
+    }
+
+    public Document parseDocument(FetchedPage fetchedPage) {
         try {
-            sleep(700);
-            Document doc = Jsoup.connect(url)
-                    .userAgent(userAgent)
-                    .referrer(referrer)
-                    .timeout(5000)
-                    .followRedirects(false)
-                    .ignoreHttpErrors(true)
-                    .get();
-
-            Elements elements = doc.select("a[href]");
-
-            for (Element el : elements) {
-                String link = el.absUrl("href");
-                if (isValidHttpUrl(link) && !isNonHtmlResource(link)) {
-                    links.add(link);
-                } else {
-                    log.warn("Пропускаем недопустимый URL: {}", link);
-                }
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Поток был прерван при обработке URL: {}. Ошибка: {}", url, e.getMessage());
+            return Jsoup.parse(new ByteArrayInputStream(fetchedPage.getBody()),
+                    extractCharset(fetchedPage.getContentType()), fetchedPage.getUrl());
         } catch (IOException e) {
-            log.error("Ошибка при обработке URL: {}. Ошибка: {}", url, e.getMessage());
+            throw new UncheckedIOException(e);
         }
-
-        return links;
     }
 
-    public PageResponse getPageResponse(String url) {
-        if (!isValidHttpUrl(url)) {
-            log.warn("Пропускаем недопустимый URL: {}", url);
-            return new PageResponse(400, "Недопустимый URL");
+    private String extractCharset(String contentType) {
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase().startsWith("charset=")) {
+                String charset = trimmed.substring("charset=".length()).replace("\"", "").trim();
+                try {
+                    return Charset.isSupported(charset) ? charset : null;
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
         }
+        return null;
+    }
 
-        try {
-            Connection.Response response = Jsoup.connect(url)
-                    .userAgent(userAgent)
-                    .referrer(referrer)
-                    .timeout(5000)
-                    .followRedirects(false)
-                    .ignoreHttpErrors(true)
-                    .execute();
-
-            int statusCode = response.statusCode();
-            String content = response.parse().html();
-
-            return new PageResponse(statusCode, content);
-        } catch (IOException e) {
-            log.error("Ошибка при обработке URL: {}. Ошибка: {}", url, e.getMessage());
-            return new PageResponse(400, "Ошибка при обработке URL");
+    public List<String> extractLinks(Document doc) {
+        List<String> links = new ArrayList<>();
+        Elements elements = doc.select("a[href]");
+
+        for (Element el : elements) {
+            String link = el.absUrl("href");
+            if (isValidHttpUrl(link) && !isNonHtmlResource(link)) {
+                links.add(link);
+            } else {
+                log.warn("Пропускаем недопустимый URL: {}", link);
+            }
         }
+        return links;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,343 @@
+package searchengine.parser;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import searchengine.config.FetcherSettings;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Асинхронная загрузка страниц через общий HttpClient (пул соединений, keep-alive, HTTP/2).
+ * Потоки не блокируются на сокетах: одновременно может выполняться до max-in-flight запросов,
+ * остальные ждут в очереди.
+ * Content-Type и Content-Length проверяются до чтения тела: ответы не в HTML и слишком большие
+ * ответы обрываются сразу, а тело читается потоком не больше max-body-bytes байт.
+ */
+@Slf4j
+@Component
+public class HttpPageFetcher {
+
+    private final String userAgent;
+    private final String referrer;
+    private final Duration requestTimeout;
+    private final int maxInFlight;
+    private final long maxBodyBytes;
+    private final List<String> htmlContentTypes;
+    private final HttpClient httpClient;
+    private final ExecutorService clientExecutor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> waitingRequests = new ConcurrentLinkedQueue<>();
+
+    public HttpPageFetcher(@Value("${indexing-settings.user-agent}") String userAgent,
+                           @Value("${indexing-settings.referrer}") String referrer,
+                           FetcherSettings settings) {
+        this.userAgent = userAgent;
+        this.referrer = referrer;
+        this.requestTimeout = Duration.ofMillis(settings.getRequestTimeoutMs());
+        this.maxInFlight = Math.max(1, settings.getMaxInFlight());
+        this.maxBodyBytes = settings.getMaxBodyBytes();
+        this.htmlContentTypes = settings.getHtmlContentTypes().stream()
+                .map(type -> type.toLowerCase(Locale.ROOT))
+                .toList();
+        this.clientExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "http-fetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofMillis(settings.getConnectTimeoutMs()))
+                .executor(clientExecutor)
+                .build();
+    }
+
+    public CompletableFuture<FetchedPage> fetch(String url) {
+        return fetch(url, null, null);
+    }
+
+    public CompletableFuture<FetchedPage> fetch(String url, String etag, String lastModified) {
+        return enqueue(url, etag, lastModified, true, maxBodyBytes);
+    }
+
+    /**
+     * Загрузка служебного ресурса (robots.txt, sitemap.xml) без проверки Content-Type.
+     */
+    public CompletableFuture<FetchedPage> fetchResource(String url, long maxBytes) {
+        return enqueue(url, null, null, false, maxBytes);
+    }
+
+    private CompletableFuture<FetchedPage> enqueue(String url, String etag, String lastModified,
+                                                   boolean htmlOnly, long maxBytes) {
+        CompletableFuture<FetchedPage> result = new CompletableFuture<>();
+        waitingRequests.add(() -> send(url, etag, lastModified, htmlOnly, maxBytes, result));
+        startWaitingRequests();
+        return result;
+    }
+
+    private void startWaitingRequests() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Runnable request = waitingRequests.poll();
+            if (request == null) {
+                inFlight.decrementAndGet();
+                if (waitingRequests.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            request.run();
+        }
+    }
+
+    private void send(String url, String etag, String lastModified, boolean htmlOnly, long maxBytes,
+                      CompletableFuture<FetchedPage> result) {
+        try {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(requestTimeout)
+                    .header("User-Agent", userAgent)
+                    .header("Referer", referrer)
+                    .header("Accept", htmlOnly ? "text/html,application/xhtml+xml" : "*/*")
+                    .header("Accept-Encoding", "gzip, deflate")
+                    .GET();
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+            HttpRequest request = builder.build();
+
+            httpClient.sendAsync(request, boundedBodyHandler(htmlOnly, maxBytes))
+                    .thenApply(response -> toFetchedPage(url, response, maxBytes))
+                    .whenComplete((page, error) -> {
+                        inFlight.decrementAndGet();
+                        startWaitingRequests();
+                        if (error != null) {
+                            result.completeExceptionally(error);
+                        } else {
+                            result.complete(page);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            result.completeExceptionally(e);
+            startWaitingRequests();
+        }
+    }
+
+    private HttpResponse.BodyHandler<BoundedBody> boundedBodyHandler(boolean htmlOnly, long maxBytes) {
+        return responseInfo -> {
+            HttpHeaders headers = responseInfo.headers();
+            int statusCode = responseInfo.statusCode();
+            String contentType = headers.firstValue("Content-Type").orElse("");
+            if (htmlOnly && statusCode >= 200 && statusCode < 300 && !isHtml(contentType)) {
+                return new SkippingSubscriber("Content-Type " + contentType);
+            }
+            long contentLength = headers.firstValueAsLong("Content-Length").orElse(-1L);
+            if (contentLength > maxBytes) {
+                return new SkippingSubscriber("Content-Length " + contentLength + " больше " + maxBytes);
+            }
+            return new BoundedBodySubscriber(maxBytes);
+        };
+    }
+
+    private boolean isHtml(String contentType) {
+        if (contentType.isBlank()) {
+            return true;
+        }
+        String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        return htmlContentTypes.contains(mediaType);
+    }
+
+    private FetchedPage toFetchedPage(String url, HttpResponse<BoundedBody> response, long maxBytes) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("");
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+
+        BoundedBody body = response.body();
+        if (body.skipReason != null) {
+            return new FetchedPage(url, response.statusCode(), contentType, new byte[0], etag, lastModified, body.skipReason);
+        }
+        byte[] decoded = decode(body.bytes, contentEncoding, maxBytes);
+        if (decoded == null) {
+            return new FetchedPage(url, response.statusCode(), contentType, new byte[0], etag, lastModified,
+                    "распакованный размер больше " + maxBytes);
+        }
+        return new FetchedPage(url, response.statusCode(), contentType, decoded, etag, lastModified);
+    }
+
+    /**
+     * Распаковывает тело не больше чем до maxBytes байт, иначе возвращает null.
+     * Для deflate принимается и поток zlib (RFC 1950), и «сырой» deflate без заголовка,
+     * который отдают некоторые серверы.
+     */
+    static byte[] decode(byte[] body, String contentEncoding, long maxBytes) {
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (body.length == 0 || (!encoding.equals("gzip") && !encoding.equals("deflate"))) {
+            return body;
+        }
+        Inflater inflater = encoding.equals("deflate") ? new Inflater(!hasZlibHeader(body)) : null;
+        try (InputStream inputStream = inflater == null
+                ? new GZIPInputStream(new ByteArrayInputStream(body))
+                : new InflaterInputStream(new ByteArrayInputStream(body), inflater)) {
+            byte[] decoded = inputStream.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxBytes + 1));
+            return decoded.length > maxBytes ? null : decoded;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    private static boolean hasZlibHeader(byte[] body) {
+        if (body.length < 2) {
+            return false;
+        }
+        int cmf = body[0] & 0xff;
+        int flg = body[1] & 0xff;
+        return (cmf & 0x0f) == 8 && (cmf >>> 4) <= 7 && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    static class BoundedBody {
+        final byte[] bytes;
+        final String skipReason;
+
+        private BoundedBody(byte[] bytes, String skipReason) {
+            this.bytes = bytes;
+            this.skipReason = skipReason;
+        }
+    }
+
+    /**
+     * Сразу отменяет подписку: соединение HTTP/1.1 закрывается, поток HTTP/2 сбрасывается,
+     * тело не передаётся.
+     */
+    private static class SkippingSubscriber implements HttpResponse.BodySubscriber<BoundedBody> {
+        private final CompletableFuture<BoundedBody> result = new CompletableFuture<>();
+        private final String skipReason;
+
+        private SkippingSubscriber(String skipReason) {
+            this.skipReason = skipReason;
+        }
+
+        @Override
+        public CompletionStage<BoundedBody> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+            result.complete(new BoundedBody(new byte[0], skipReason));
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(new BoundedBody(new byte[0], skipReason));
+        }
+    }
+
+    /**
+     * Читает тело по мере поступления и обрывает загрузку, как только превышен лимит,
+     * когда сервер не сообщил Content-Length или указал его неверно.
+     */
+    static class BoundedBodySubscriber implements HttpResponse.BodySubscriber<BoundedBody> {
+        private final CompletableFuture<BoundedBody> result = new CompletableFuture<>();
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final long maxBytes;
+        private Flow.Subscription subscription;
+
+        BoundedBodySubscriber(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public CompletionStage<BoundedBody> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (result.isDone()) {
+                return;
+            }
+            for (ByteBuffer item : items) {
+                if (buffer.size() + (long) item.remaining() > maxBytes) {
+                    subscription.cancel();
+                    result.complete(new BoundedBody(new byte[0], "размер больше " + maxBytes));
+                    return;
+                }
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                buffer.write(bytes, 0, bytes.length);
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(new BoundedBody(buffer.toByteArray(), null));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clientExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,210 @@
+package searchengine.parser;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import searchengine.config.DiscoverySettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Предварительный этап обхода: читает robots.txt и карты сайта (в том числе сжатые
+ * и вложенные sitemap index), передаёт найденные адреса в очередь обхода,
+ * а Crawl-delay — в ограничитель частоты запросов к хосту.
+ */
+@Slf4j
+@Component
+public class SiteDiscovery {
+
+    private static final long MAX_ROBOTS_BYTES = 512 * 1024;
+
+    private final HtmlLinkParser htmlLinkParser;
+    private final HostPolitenessScheduler politenessScheduler;
+    private final DiscoverySettings settings;
+    private final String userAgent;
+
+    public SiteDiscovery(HtmlLinkParser htmlLinkParser,
+                         HostPolitenessScheduler politenessScheduler,
+                         DiscoverySettings settings,
+                         @Value("${indexing-settings.user-agent}") String userAgent) {
+        this.htmlLinkParser = htmlLinkParser;
+        this.politenessScheduler = politenessScheduler;
+        this.settings = settings;
+        this.userAgent = userAgent.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Разбор карт сайта выполняется на executor обхода, а не в общем ForkJoinPool.
+     */
+    public CompletableFuture<Void> discover(String siteUrl, Consumer<String> urlConsumer, Executor executor) {
+        if (!settings.isEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String origin = extractOrigin(siteUrl);
+        AtomicInteger urlCount = new AtomicInteger();
+        return htmlLinkParser.fetchResource(origin + "/robots.txt", MAX_ROBOTS_BYTES)
+                .thenApply(page -> page.getStatusCode() == 200 && !page.isSkipped()
+                        ? parseRobots(new String(page.getBody(), StandardCharsets.UTF_8))
+                        : new RobotsRules())
+                .exceptionally(e -> {
+                    log.warn("Не удалось получить robots.txt сайта {}: {}", siteUrl, e.getMessage());
+                    return new RobotsRules();
+                })
+                .thenCompose(rules -> {
+                    applyCrawlDelay(siteUrl, rules);
+                    List<String> sitemaps = rules.sitemaps.isEmpty() ? List.of(origin + "/sitemap.xml") : rules.sitemaps;
+                    return CompletableFuture.allOf(sitemaps.stream()
+                            .map(sitemap -> readSitemap(sitemap, 0, urlConsumer, urlCount, executor))
+                            .toArray(CompletableFuture[]::new));
+                })
+                .whenComplete((ignored, error) ->
+                        log.info("Из карт сайта {} получено адресов: {}", siteUrl, Math.min(urlCount.get(), settings.getMaxSitemapUrls())));
+    }
+
+    private CompletableFuture<Void> readSitemap(String sitemapUrl, int depth, Consumer<String> urlConsumer,
+                                                AtomicInteger urlCount, Executor executor) {
+        return htmlLinkParser.fetchResource(sitemapUrl, settings.getMaxSitemapBytes())
+                .thenComposeAsync(page -> {
+                    if (page.getStatusCode() != 200 || page.isSkipped() || urlCount.get() >= settings.getMaxSitemapUrls()) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+
+                    Document doc = parseXml(page);
+                    for (Element loc : doc.select("url > loc")) {
+                        if (urlCount.incrementAndGet() > settings.getMaxSitemapUrls()) {
+                            break;
+                        }
+                        urlConsumer.accept(loc.text().trim());
+                    }
+
+                    if (depth >= settings.getMaxSitemapDepth()) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    return CompletableFuture.allOf(doc.select("sitemap > loc").stream()
+                            .map(loc -> readSitemap(loc.text().trim(), depth + 1, urlConsumer, urlCount, executor))
+                            .toArray(CompletableFuture[]::new));
+                }, executor)
+                .exceptionally(e -> {
+                    log.warn("Не удалось прочитать карту сайта {}: {}", sitemapUrl, e.getMessage());
+                    return null;
+                });
+    }
+
+    private Document parseXml(FetchedPage page) {
+        byte[] body = page.getBody();
+        boolean gzipped = body.length > 1 && (body[0] & 0xff) == 0x1f && (body[1] & 0xff) == 0x8b;
+        if (gzipped) {
+            body = gunzip(body, page.getUrl());
+        }
+        try (InputStream inputStream = new ByteArrayInputStream(body)) {
+            return Jsoup.parse(inputStream, null, page.getUrl(), Parser.xmlParser());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Распаковка ограничена тем же max-sitemap-bytes, что и загрузка: небольшой сжатый файл
+     * может разворачиваться в сколь угодно большой.
+     */
+    private byte[] gunzip(byte[] body, String url) {
+        long maxBytes = settings.getMaxSitemapBytes();
+        try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            byte[] unpacked = inputStream.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxBytes + 1));
+            if (unpacked.length > maxBytes) {
+                throw new IOException("Карта сайта " + url + " после распаковки больше " + maxBytes + " байт");
+            }
+            return unpacked;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private RobotsRules parseRobots(String content) {
+        RobotsRules rules = new RobotsRules();
+        boolean anyAgentGroup = false;
+        boolean ownAgentGroup = false;
+        boolean previousLineWasAgent = false;
+
+        for (String rawLine : content.split("\\r?\\n")) {
+            int commentStart = rawLine.indexOf('#');
+            String line = (commentStart >= 0 ? rawLine.substring(0, commentStart) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            if (field.equals("user-agent")) {
+                if (!previousLineWasAgent) {
+                    anyAgentGroup = false;
+                    ownAgentGroup = false;
+                }
+                String agent = value.toLowerCase(Locale.ROOT);
+                anyAgentGroup |= agent.equals("*");
+                ownAgentGroup |= !agent.equals("*") && !agent.isEmpty() && userAgent.contains(agent);
+                previousLineWasAgent = true;
+                continue;
+            }
+            previousLineWasAgent = false;
+
+            if (field.equals("sitemap") && !value.isEmpty()) {
+                rules.sitemaps.add(value);
+            } else if (field.equals("crawl-delay")) {
+                try {
+                    double delay = Double.parseDouble(value);
+                    if (ownAgentGroup) {
+                        rules.ownAgentCrawlDelay = delay;
+                    } else if (anyAgentGroup) {
+                        rules.anyAgentCrawlDelay = delay;
+                    }
+                } catch (NumberFormatException e) {
+                    log.warn("Некорректное значение Crawl-delay: {}", value);
+                }
+            }
+        }
+        return rules;
+    }
+
+    private void applyCrawlDelay(String siteUrl, RobotsRules rules) {
+        Double delay = rules.ownAgentCrawlDelay != null ? rules.ownAgentCrawlDelay : rules.anyAgentCrawlDelay;
+        if (delay == null || delay <= 0) {
+            // Crawl-delay из прошлого robots.txt больше не действует: возвращаем интервал из настроек
+            politenessScheduler.applyCrawlDelay(siteUrl, 0);
+            return;
+        }
+        double cappedDelay = Math.min(delay, settings.getMaxCrawlDelaySeconds());
+        politenessScheduler.applyCrawlDelay(siteUrl, (long) (cappedDelay * TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    private String extractOrigin(String siteUrl) {
+        URI uri = URI.create(siteUrl);
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+
+    private static class RobotsRules {
+        private final List<String> sitemaps = new ArrayList<>();
+        private Double ownAgentCrawlDelay;
+        private Double anyAgentCrawlDelay;
+    }
+}
@@ -0,0 +1,153 @@
+package searchengine.parser;
+
+import org.springframework.stereotype.Component;
+import searchengine.config.CanonicalizationSettings;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Приводит ссылки к каноническому виду до проверки на повтор: убирает фрагмент и
+ * трекинговые параметры, сортирует параметры запроса, приводит схему и хост к виду,
+ * указанному в конфигурации сайта, и отбрасывает ссылки за пределами сайта.
+ */
+@Component
+public class UrlCanonicalizer {
+
+    private final List<String> trackingParameters;
+    private final List<String> indexFiles;
+    private final boolean sortQueryParameters;
+    private final boolean ignoreTrailingSlash;
+
+    public UrlCanonicalizer(CanonicalizationSettings settings) {
+        this.trackingParameters = settings.getTrackingParameters().stream()
+                .map(parameter -> parameter.toLowerCase(Locale.ROOT))
+                .toList();
+        this.indexFiles = settings.getIndexFiles();
+        this.sortQueryParameters = settings.isSortQueryParameters();
+        this.ignoreTrailingSlash = settings.isIgnoreTrailingSlash();
+    }
+
+    public Optional<String> canonicalize(String url, String siteUrl) {
+        try {
+            URI uri = new URI(url.trim());
+            URI site = new URI(siteUrl.trim());
+
+            String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+            if (!scheme.equals("http") && !scheme.equals("https") || uri.getHost() == null || site.getHost() == null) {
+                return Optional.empty();
+            }
+            if (!isSameHost(uri.getHost(), site.getHost()) || effectivePort(uri) != effectivePort(site)) {
+                return Optional.empty();
+            }
+
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            String sitePath = site.getRawPath() == null ? "" : site.getRawPath();
+            if (!path.startsWith(sitePath)) {
+                return Optional.empty();
+            }
+
+            String query = canonicalQuery(uri.getRawQuery());
+            return Optional.of(site.getScheme().toLowerCase(Locale.ROOT) + "://"
+                    + site.getRawAuthority().toLowerCase(Locale.ROOT)
+                    + path
+                    + (query.isEmpty() ? "" : "?" + query));
+        } catch (URISyntaxException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Путь страницы для колонки page.path: путь канонического адреса вместе с каноническим запросом,
+     * чтобы страницы, различающиеся только параметрами, не сохранялись с одинаковым путём.
+     */
+    public String relativePath(String canonicalUrl) {
+        try {
+            URI uri = new URI(canonicalUrl);
+            String path = uri.getPath() == null || uri.getPath().isEmpty() ? "/" : uri.getPath();
+            return uri.getRawQuery() == null || uri.getRawQuery().isEmpty() ? path : path + "?" + uri.getRawQuery();
+        } catch (URISyntaxException e) {
+            return "/";
+        }
+    }
+
+    /**
+     * Ключ для проверки на повтор: дополнительно отбрасывает индексный файл и завершающий слеш.
+     * Такие варианты не подставляются в загружаемый адрес, так как сервер может отвечать по ним по-разному.
+     */
+    public String dedupKey(String canonicalUrl) {
+        return normalizeForKey(canonicalUrl, canonicalUrl.indexOf('/', canonicalUrl.indexOf("://") + 3));
+    }
+
+    /**
+     * Ключ сохранённой страницы по её page.path с той же нормализацией, что и {@link #dedupKey}:
+     * один и тот же адрес сопоставляется со строкой page независимо от индексного файла и слеша.
+     */
+    public String pathKey(String relativePath) {
+        return normalizeForKey(relativePath, 0);
+    }
+
+    private String normalizeForKey(String address, int pathStart) {
+        int queryStart = address.indexOf('?');
+        String base = queryStart < 0 ? address : address.substring(0, queryStart);
+        String query = queryStart < 0 ? "" : address.substring(queryStart);
+
+        for (String indexFile : indexFiles) {
+            if (base.endsWith("/" + indexFile)) {
+                base = base.substring(0, base.length() - indexFile.length());
+                break;
+            }
+        }
+
+        if (ignoreTrailingSlash && pathStart >= 0 && base.length() - 1 > pathStart && base.endsWith("/")) {
+            base = base.substring(0, base.length() - 1);
+        }
+        return base + query;
+    }
+
+    private String canonicalQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        List<String> parameters = new ArrayList<>();
+        for (String parameter : rawQuery.split("&")) {
+            if (!parameter.isEmpty() && !isTrackingParameter(parameter)) {
+                parameters.add(parameter);
+            }
+        }
+        if (sortQueryParameters) {
+            parameters.sort(null);
+        }
+        return String.join("&", parameters);
+    }
+
+    private boolean isTrackingParameter(String parameter) {
+        int separator = parameter.indexOf('=');
+        String name = (separator < 0 ? parameter : parameter.substring(0, separator)).toLowerCase(Locale.ROOT);
+        for (String tracking : trackingParameters) {
+            if (tracking.endsWith("*")
+                    ? name.startsWith(tracking.substring(0, tracking.length() - 1))
+                    : name.equals(tracking)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSameHost(String host, String siteHost) {
+        return stripWww(host.toLowerCase(Locale.ROOT)).equals(stripWww(siteHost.toLowerCase(Locale.ROOT)));
+    }
+
+    private String stripWww(String host) {
+        return host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    private int effectivePort(URI uri) {
+        int port = uri.getPort();
+        return port == -1 || port == 80 || port == 443 ? 0 : port;
+    }
+}
@@ -0,0 +1,160 @@
+package searchengine.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import searchengine.model.IndexRow;
+import searchengine.model.LemmaEntity;
+import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.BulkIndexRepository;
+import searchengine.repositories.PageBatchRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Построение индекса в режиме bulk. Страницы пишутся в page_staging по мере обхода,
+ * а словарь лемм и постинги каждого сайта накапливаются в памяти. После обхода леммы
+ * загружаются отсортированными по (сайт, лемма) с заранее назначенными id, постинги —
+ * отсортированными по lemma_id, затем таблицы получают индексы и подменяют живые.
+ */
+@Slf4j
+public class BulkIndexBuilder {
+
+    private static final String PAGE_STAGING_TABLE = "page" + BulkIndexRepository.STAGING_SUFFIX;
+
+    private final BulkIndexRepository bulkIndexRepository;
+    private final PageBatchRepository pageBatchRepository;
+    private final int batchSize;
+    private final Map<Integer, SiteIndex> siteIndexes = new ConcurrentHashMap<>();
+
+    public BulkIndexBuilder(BulkIndexRepository bulkIndexRepository,
+                            PageBatchRepository pageBatchRepository,
+                            int batchSize) {
+        this.bulkIndexRepository = bulkIndexRepository;
+        this.pageBatchRepository = pageBatchRepository;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Создаёт промежуточные таблицы и переносит в них данные сайтов, которые не перестраиваются.
+     */
+    public void prepare(Collection<Integer> rebuiltSiteIds) {
+        bulkIndexRepository.createStagingTables();
+        bulkIndexRepository.copyRowsExceptSites(rebuiltSiteIds);
+    }
+
+    public void addPages(SiteEntity siteEntity, List<PageEntity> pages, Map<PageEntity, Map<String, Integer>> lemmasByPage) {
+        pageBatchRepository.insertPages(PAGE_STAGING_TABLE, pages, batchSize);
+
+        SiteIndex siteIndex = siteIndexes.computeIfAbsent(siteEntity.getId(), siteId -> new SiteIndex(siteEntity));
+        synchronized (siteIndex) {
+            lemmasByPage.forEach((page, lemmas) -> lemmas.forEach((lemma, rank) ->
+                    siteIndex.addPosting(lemma, page.getId(), rank)));
+        }
+    }
+
+    /**
+     * Загружает леммы и постинги, строит индексы и подменяет живые таблицы.
+     */
+    public void publish() {
+        int nextLemmaId = bulkIndexRepository.nextLemmaId();
+        for (SiteIndex siteIndex : siteIndexes.values()) {
+            nextLemmaId = loadSite(siteIndex, nextLemmaId);
+        }
+        siteIndexes.clear();
+        bulkIndexRepository.publishStagingTables();
+        log.info("Промежуточные таблицы индекса опубликованы");
+    }
+
+    public void discard() {
+        siteIndexes.clear();
+        bulkIndexRepository.dropStagingTables();
+    }
+
+    private int loadSite(SiteIndex siteIndex, int firstLemmaId) {
+        String[] sortedLemmas = siteIndex.lemmaSlots.keySet().toArray(String[]::new);
+        Arrays.sort(sortedLemmas);
+
+        // Номер леммы в порядке появления → id в порядке сортировки
+        int[] lemmaIds = new int[sortedLemmas.length];
+        List<LemmaEntity> lemmaRows = new ArrayList<>(Math.min(sortedLemmas.length, batchSize));
+        for (int i = 0; i < sortedLemmas.length; i++) {
+            int slot = siteIndex.lemmaSlots.get(sortedLemmas[i]);
+            lemmaIds[slot] = firstLemmaId + i;
+            lemmaRows.add(LemmaEntity.builder()
+                    .id(firstLemmaId + i)
+                    .siteEntity(siteIndex.siteEntity)
+                    .lemma(sortedLemmas[i])
+                    .frequency(siteIndex.frequencies[slot])
+                    .build());
+            if (lemmaRows.size() == batchSize) {
+                bulkIndexRepository.insertLemmas(lemmaRows, batchSize);
+                lemmaRows.clear();
+            }
+        }
+        bulkIndexRepository.insertLemmas(lemmaRows, batchSize);
+
+        // Ключ сортировки: id леммы в старших 32 битах, номер постинга в младших
+        long[] order = new long[siteIndex.postingCount];
+        for (int i = 0; i < siteIndex.postingCount; i++) {
+            order[i] = ((long) lemmaIds[siteIndex.postingLemmas[i]] << 32) | i;
+        }
+        Arrays.parallelSort(order);
+
+        List<IndexRow> indexRows = new ArrayList<>(Math.min(order.length, batchSize));
+        for (long key : order) {
+            int posting = (int) key;
+            indexRows.add(new IndexRow(siteIndex.postingPages[posting], (int) (key >>> 32), siteIndex.postingRanks[posting]));
+            if (indexRows.size() == batchSize) {
+                bulkIndexRepository.insertIndexes(indexRows, batchSize);
+                indexRows.clear();
+            }
+        }
+        bulkIndexRepository.insertIndexes(indexRows, batchSize);
+
+        log.info("Сайт {}: загружено лемм {}, постингов {}",
+                siteIndex.siteEntity.getUrl(), sortedLemmas.length, siteIndex.postingCount);
+        return firstLemmaId + sortedLemmas.length;
+    }
+
+    /**
+     * Словарь лемм сайта и постинги в параллельных массивах примитивов.
+     */
+    private static class SiteIndex {
+        private final SiteEntity siteEntity;
+        private final Map<String, Integer> lemmaSlots = new HashMap<>();
+        private int[] frequencies = new int[1024];
+        private int[] postingLemmas = new int[4096];
+        private int[] postingPages = new int[4096];
+        private float[] postingRanks = new float[4096];
+        private int postingCount;
+
+        private SiteIndex(SiteEntity siteEntity) {
+            this.siteEntity = siteEntity;
+        }
+
+        private void addPosting(String lemma, int pageId, float rank) {
+            int slot = lemmaSlots.computeIfAbsent(lemma, key -> lemmaSlots.size());
+            if (slot == frequencies.length) {
+                frequencies = Arrays.copyOf(frequencies, slot * 2);
+            }
+            frequencies[slot]++;
+
+            if (postingCount == postingPages.length) {
+                int capacity = postingCount * 2;
+                postingLemmas = Arrays.copyOf(postingLemmas, capacity);
+                postingPages = Arrays.copyOf(postingPages, capacity);
+                postingRanks = Arrays.copyOf(postingRanks, capacity);
+            }
+            postingLemmas[postingCount] = slot;
+            postingPages[postingCount] = pageId;
+            postingRanks[postingCount] = rank;
+            postingCount++;
+        }
+    }
+}
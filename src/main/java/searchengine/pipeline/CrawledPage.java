@@ -0,0 +1,51 @@
+package searchengine.pipeline;
+
+import lombok.Getter;
+import lombok.Setter;
+import searchengine.model.PageSnapshot;
+import searchengine.parser.FetchedPage;
+
+import java.util.Map;
+
+@Getter
+@Setter
+public class CrawledPage {
+    private final SiteCrawl siteCrawl;
+    private final String url;
+    private final PageSnapshot previousPage;
+    private FetchedPage fetchedPage;
+    private boolean storedCopy;
+    private boolean skipped;
+    private int code;
+    private String content;
+    private String title;
+    private String text;
+    private String etag;
+    private String lastModified;
+    private String contentHash;
+    private Map<String, Integer> lemmas;
+
+    public CrawledPage(SiteCrawl siteCrawl, String url, PageSnapshot previousPage) {
+        this.siteCrawl = siteCrawl;
+        this.url = url;
+        this.previousPage = previousPage;
+    }
+
+    /**
+     * Текст для лемматизации и хэша: заголовок и текст body.
+     */
+    public String getIndexedText() {
+        if (text == null) {
+            return null;
+        }
+        return title == null || title.isEmpty() ? text : title + " " + text;
+    }
+
+    public boolean isStoredCopyReused() {
+        return previousPage != null && (storedCopy || code == 304);
+    }
+
+    public boolean isContentUnchanged() {
+        return previousPage != null && contentHash != null && contentHash.equals(previousPage.getContentHash());
+    }
+}
@@ -0,0 +1,17 @@
+package searchengine.pipeline;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum IndexingMode {
+    FULL,
+    INCREMENTAL,
+    RESUME,
+    BULK;
+
+    public static Optional<IndexingMode> fromParameter(String value) {
+        return Arrays.stream(values())
+                .filter(mode -> mode.name().equalsIgnoreCase(value))
+                .findFirst();
+    }
+}
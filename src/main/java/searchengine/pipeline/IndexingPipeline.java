@@ -0,0 +1,642 @@
+package searchengine.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import searchengine.config.PipelineSettings;
+import searchengine.dto.statistics.PipelineStatistics;
+import searchengine.dto.statistics.StageStatistics;
+import searchengine.model.FrontierEntry;
+import searchengine.model.PageEntity;
+import searchengine.model.PageSnapshot;
+import searchengine.model.SiteEntity;
+import searchengine.model.Status;
+import searchengine.parser.FetchedPage;
+import searchengine.parser.HtmlLinkParser;
+import searchengine.parser.SiteDiscovery;
+import searchengine.parser.UrlCanonicalizer;
+import searchengine.repositories.CrawlFrontierRepository;
+import searchengine.repositories.PageRepository;
+import searchengine.repositories.SiteRepository;
+import searchengine.services.LemmaService;
+import searchengine.services.PageWriterService;
+import searchengine.util.ContentHash;
+import searchengine.util.Morphology;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Конвейер индексации: загрузка → разбор HTML → лемматизация → пакетная запись в БД.
+ * Этапы связаны ограниченными очередями, у каждого свой пул потоков.
+ * Загрузка ограничена числом разрешений fetch-parallelism, которые возвращаются
+ * только после разбора страницы, поэтому медленные этапы притормаживают загрузку.
+ */
+@Slf4j
+public class IndexingPipeline {
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(3);
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    private final HtmlLinkParser htmlLinkParser;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final SiteDiscovery siteDiscovery;
+    private final Morphology morphology;
+    private final LemmaService lemmaService;
+    private final PageWriterService pageWriterService;
+    private final PageRepository pageRepository;
+    private final SiteRepository siteRepository;
+    private final CrawlFrontierRepository frontierRepository;
+    private final int fetchParallelism;
+    private final int perSiteFetchLimit;
+    private final int expectedUrlsPerSite;
+    private final long statisticsLogIntervalNanos;
+    private final long checkpointIntervalNanos;
+    private final Semaphore fetchPermits;
+    private final PipelineStage<CrawledPage> extractStage;
+    private final PipelineStage<CrawledPage> lemmatizeStage;
+    private final PipelineStage<CrawledPage> writeStage;
+    private final ExecutorService discoveryExecutor;
+    private final List<SiteCrawl> siteCrawls = new CopyOnWriteArrayList<>();
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+    private final Condition workAvailable = dispatchLock.newCondition();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong fetchFailed = new AtomicLong();
+    private BulkIndexBuilder bulkIndexBuilder;
+    private volatile boolean running;
+    private final AtomicBoolean shutdownStarted = new AtomicBoolean();
+    private Thread dispatcher;
+    private long startNanos;
+
+    public IndexingPipeline(HtmlLinkParser htmlLinkParser,
+                            UrlCanonicalizer urlCanonicalizer,
+                            SiteDiscovery siteDiscovery,
+                            Morphology morphology,
+                            LemmaService lemmaService,
+                            PageWriterService pageWriterService,
+                            PageRepository pageRepository,
+                            SiteRepository siteRepository,
+                            CrawlFrontierRepository frontierRepository,
+                            PipelineSettings settings) {
+        this.htmlLinkParser = htmlLinkParser;
+        this.urlCanonicalizer = urlCanonicalizer;
+        this.siteDiscovery = siteDiscovery;
+        this.morphology = morphology;
+        this.lemmaService = lemmaService;
+        this.pageWriterService = pageWriterService;
+        this.pageRepository = pageRepository;
+        this.siteRepository = siteRepository;
+        this.frontierRepository = frontierRepository;
+        this.fetchParallelism = Math.max(1, settings.getFetchParallelism());
+        this.perSiteFetchLimit = Math.max(1, settings.getMaxInFlightPerSite());
+        this.expectedUrlsPerSite = settings.getExpectedUrlsPerSite();
+        this.statisticsLogIntervalNanos = TimeUnit.SECONDS.toNanos(settings.getStatisticsLogIntervalSeconds());
+        this.checkpointIntervalNanos = TimeUnit.SECONDS.toNanos(settings.getCheckpointIntervalSeconds());
+        this.fetchPermits = new Semaphore(fetchParallelism);
+
+        // Ёмкость очереди разбора не меньше числа разрешений на загрузку,
+        // чтобы потоки HttpClient никогда не блокировались на её заполнении
+        this.extractStage = new PipelineStage<>("extract", settings.getExtractThreads(),
+                fetchParallelism, 1, batch -> batch.forEach(this::extract));
+        // Потоки этапа только собирают пакеты, сама лемматизация идёт на пуле Morphology
+        this.lemmatizeStage = new PipelineStage<>("lemmatize", settings.getLemmatizeWorkers(),
+                settings.getQueueCapacity(), settings.getLemmatizeBatchSize(), this::lemmatizeBatch);
+        this.writeStage = new PipelineStage<>("write", settings.getWriterThreads(),
+                settings.getQueueCapacity(), settings.getWriteBatchSize(), this::write);
+        // Разбор карт сайта; сами запросы выполняет HttpClient, поэтому двух потоков достаточно
+        AtomicInteger discoveryThreads = new AtomicInteger();
+        this.discoveryExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-discovery-" + discoveryThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Режим bulk: страницы и индекс пишутся в промежуточные таблицы через построитель,
+     * а сохранение очереди обхода отключено. Вызывается до start().
+     */
+    public void setBulkIndexBuilder(BulkIndexBuilder bulkIndexBuilder) {
+        this.bulkIndexBuilder = bulkIndexBuilder;
+    }
+
+    public void start() {
+        running = true;
+        startNanos = System.nanoTime();
+        extractStage.start();
+        lemmatizeStage.start();
+        writeStage.start();
+
+        dispatcher = new Thread(this::dispatchLoop, "pipeline-fetch-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    public void addSite(SiteEntity siteEntity, String rootUrl) {
+        addSite(siteEntity, rootUrl, null);
+    }
+
+    public void addSite(SiteEntity siteEntity, String rootUrl, Collection<PageSnapshot> previousPages) {
+        SiteCrawl siteCrawl = new SiteCrawl(siteEntity, rootUrl, expectedUrlsPerSite);
+        if (previousPages != null) {
+            siteCrawl.setPreviousPages(previousPages, urlCanonicalizer::pathKey);
+        }
+        if (bulkIndexBuilder != null) {
+            siteCrawl.closeCheckpoint();
+        } else {
+            frontierRepository.saveCrawlMode(siteEntity.getId(), previousPages != null);
+        }
+        enqueue(siteCrawl, rootUrl);
+        startSite(siteCrawl);
+    }
+
+    /**
+     * Продолжает прерванный обход. После полного обхода все страницы сайта записаны этим обходом,
+     * поэтому сохранённые копии используются без загрузки. Инкрементальный обход продолжается
+     * инкрементально: без загрузки остаются только страницы, отмеченные в очереди как обработанные,
+     * остальные проверяются условным запросом, а не встреченные страницы в конце удаляются.
+     */
+    public void resumeSite(SiteEntity siteEntity, String rootUrl, boolean incremental,
+                           Collection<PageSnapshot> storedPages, List<FrontierEntry> frontierEntries) {
+        SiteCrawl siteCrawl = new SiteCrawl(siteEntity, rootUrl, Math.max(expectedUrlsPerSite, frontierEntries.size()));
+        if (incremental) {
+            siteCrawl.setPreviousPages(storedPages, urlCanonicalizer::pathKey);
+        } else {
+            siteCrawl.setStoredPages(storedPages, urlCanonicalizer::pathKey);
+        }
+        long queued = 0;
+        for (FrontierEntry entry : frontierEntries) {
+            siteCrawl.markVisited(entry.getUrlHash());
+            if (!entry.isDone()) {
+                siteCrawl.enqueueRestored(entry.getUrl());
+                queued++;
+            } else if (incremental) {
+                // Страница уже обновлена прерванным обходом: не загружаем её и не удаляем как исчезнувшую
+                siteCrawl.takePreviousPage(urlCanonicalizer.pathKey(urlCanonicalizer.relativePath(entry.getUrl())));
+            }
+        }
+        log.info("Продолжаем {} обход сайта {}: в очереди {} из {} ссылок", incremental ? "инкрементальный" : "полный",
+                siteEntity.getUrl(), queued, frontierEntries.size());
+
+        startSite(siteCrawl);
+    }
+
+    /**
+     * Регистрирует сайт и запускает чтение robots.txt и карт сайта. Пока оно не закончено,
+     * обход сайта не считается завершённым, даже если очередь ссылок уже пуста.
+     */
+    private void startSite(SiteCrawl siteCrawl) {
+        lemmaService.openDictionary(siteCrawl.getSiteEntity());
+        siteCrawls.add(siteCrawl);
+        siteCrawl.taskStarted();
+        siteDiscovery.discover(siteCrawl.getRootUrl(), url -> {
+                    if (!isDropped(siteCrawl)) {
+                        enqueue(siteCrawl, url);
+                    }
+                }, discoveryExecutor)
+                .whenComplete((ignored, error) -> completeTask(siteCrawl));
+        signalWork();
+    }
+
+    public void awaitCompletion() throws InterruptedException {
+        dispatchLock.lock();
+        try {
+            while (running && !siteCrawls.stream().allMatch(SiteCrawl::isFinished)) {
+                workAvailable.await(1, TimeUnit.SECONDS);
+            }
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    /**
+     * Останавливает конвейер. Вызывается и потоком индексации, и запросом на остановку;
+     * выполняется только первый вызов, повторный сразу возвращается.
+     */
+    public void shutdown() throws InterruptedException {
+        if (!shutdownStarted.compareAndSet(false, true)) {
+            return;
+        }
+        running = false;
+        signalWork();
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            dispatcher.join(SHUTDOWN_TIMEOUT_MILLIS);
+        }
+        extractStage.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+        lemmatizeStage.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+        writeStage.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+        discoveryExecutor.shutdownNow();
+        checkpoint();
+        siteCrawls.forEach(siteCrawl -> lemmaService.closeDictionary(siteCrawl.getSiteEntity()));
+        logStatistics();
+    }
+
+    public PipelineStatistics getStatistics() {
+        double elapsedSeconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        int frontierSize = siteCrawls.stream().mapToInt(SiteCrawl::frontierSize).sum();
+
+        List<StageStatistics> stages = new ArrayList<>();
+        stages.add(new StageStatistics("fetch", fetchParallelism,
+                fetchParallelism - fetchPermits.availablePermits(), frontierSize, 0,
+                fetched.get(), fetchFailed.get(), fetched.get() / elapsedSeconds));
+        stages.add(extractStage.getStatistics());
+        stages.add(lemmatizeStage.getStatistics());
+        stages.add(writeStage.getStatistics());
+        return new PipelineStatistics(running, stages, morphology.getCacheStatistics());
+    }
+
+    private void dispatchLoop() {
+        long nextStatisticsLog = System.nanoTime() + statisticsLogIntervalNanos;
+        long nextCheckpoint = System.nanoTime() + checkpointIntervalNanos;
+        try {
+            while (running) {
+                boolean dispatched = false;
+                for (SiteCrawl siteCrawl : siteCrawls) {
+                    if (siteCrawl.getOutstandingFetches().get() >= perSiteFetchLimit) {
+                        continue;
+                    }
+                    if (!fetchPermits.tryAcquire(50, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                    String url = siteCrawl.pollFrontier();
+                    if (url == null) {
+                        fetchPermits.release();
+                        continue;
+                    }
+                    siteCrawl.getOutstandingFetches().incrementAndGet();
+                    startFetch(siteCrawl, url);
+                    dispatched = true;
+                }
+
+                if (!dispatched) {
+                    awaitWork();
+                }
+
+                if (System.nanoTime() >= nextCheckpoint) {
+                    checkpoint();
+                    nextCheckpoint = System.nanoTime() + checkpointIntervalNanos;
+                }
+
+                if (statisticsLogIntervalNanos > 0 && System.nanoTime() >= nextStatisticsLog) {
+                    logStatistics();
+                    nextStatisticsLog = System.nanoTime() + statisticsLogIntervalNanos;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Поток загрузки конвейера прерван");
+        }
+    }
+
+    private void startFetch(SiteCrawl siteCrawl, String url) {
+        PageSnapshot previousPage = siteCrawl.takePreviousPage(urlCanonicalizer.pathKey(urlCanonicalizer.relativePath(url)));
+        CrawledPage page = new CrawledPage(siteCrawl, url, previousPage);
+        if (previousPage != null && siteCrawl.isResumed()) {
+            // Страница сохранена до остановки: повторно не загружаем, ссылки берём из БД
+            page.setStoredCopy(true);
+            submitFetched(siteCrawl, page);
+            return;
+        }
+
+        String etag = previousPage != null ? previousPage.getEtag() : null;
+        String lastModified = previousPage != null ? previousPage.getLastModified() : null;
+
+        htmlLinkParser.fetch(url, etag, lastModified).whenComplete((fetchedPage, error) -> {
+            if (error != null) {
+                log.error("Ошибка при обработке URL: {}. Ошибка: {}", url, error.getMessage());
+                fetchFailed.incrementAndGet();
+                page.setCode(400);
+                page.setContent("Ошибка при обработке URL");
+            } else {
+                log.info("Статус для URL " + url + ": " + fetchedPage.getStatusCode());
+                fetched.incrementAndGet();
+                page.setFetchedPage(fetchedPage);
+                page.setCode(fetchedPage.getStatusCode());
+                page.setEtag(fetchedPage.getEtag());
+                page.setLastModified(fetchedPage.getLastModified());
+            }
+
+            submitFetched(siteCrawl, page);
+        });
+    }
+
+    private void submitFetched(SiteCrawl siteCrawl, CrawledPage page) {
+        try {
+            extractStage.submit(page);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releaseFetch(siteCrawl);
+            completePage(page);
+        }
+    }
+
+    private void extract(CrawledPage page) {
+        SiteCrawl siteCrawl = page.getSiteCrawl();
+        try {
+            if (isDropped(siteCrawl)) {
+                completePage(page);
+                return;
+            }
+
+            FetchedPage fetchedPage = page.getFetchedPage();
+            if (page.isStoredCopyReused()) {
+                // Страница не изменилась: ссылки берём из сохранённой копии, без повторной загрузки
+                String storedContent = pageRepository.findContentById(page.getPreviousPage().getId());
+                Document doc = htmlLinkParser.parseDocument(storedContent, page.getUrl());
+                htmlLinkParser.extractLinks(doc).forEach(link -> enqueue(siteCrawl, link));
+            } else if (fetchedPage != null && fetchedPage.isSkipped()) {
+                log.info("Пропускаем URL {}: {}", page.getUrl(), fetchedPage.getSkipReason());
+                page.setSkipped(true);
+            } else if (fetchedPage != null) {
+                Document doc = htmlLinkParser.parseDocument(fetchedPage);
+                page.setContent(doc.html());
+                page.setTitle(doc.title());
+                page.setText(doc.body() != null ? doc.body().text() : "");
+                page.setContentHash(ContentHash.sha256(page.getIndexedText()));
+                htmlLinkParser.extractLinks(doc).forEach(link -> enqueue(siteCrawl, link));
+            }
+            page.setFetchedPage(null);
+            lemmatizeStage.submit(page);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completePage(page);
+        } catch (Exception e) {
+            failSite(siteCrawl, e);
+            completePage(page);
+        } finally {
+            releaseFetch(siteCrawl);
+        }
+    }
+
+    private void lemmatizeBatch(List<CrawledPage> batch) {
+        List<CrawledPage> pagesToLemmatize = batch.stream()
+                .filter(page -> !isDropped(page.getSiteCrawl()) && needsLemmas(page))
+                .toList();
+        try {
+            List<Map<String, Integer>> lemmaLists = morphology.getLemmaLists(pagesToLemmatize.stream()
+                    .map(CrawledPage::getIndexedText)
+                    .toList());
+            for (int i = 0; i < pagesToLemmatize.size(); i++) {
+                pagesToLemmatize.get(i).setLemmas(lemmaLists.get(i));
+            }
+        } catch (Exception e) {
+            log.warn("Ошибка пакетной лемматизации, обрабатываем страницы по одной: {}", e.getMessage());
+        }
+        batch.forEach(this::lemmatize);
+    }
+
+    private boolean needsLemmas(CrawledPage page) {
+        return page.getCode() == 200 && page.getText() != null && !page.isContentUnchanged();
+    }
+
+    private void lemmatize(CrawledPage page) {
+        SiteCrawl siteCrawl = page.getSiteCrawl();
+        try {
+            if (isDropped(siteCrawl)) {
+                completePage(page);
+                return;
+            }
+
+            if (page.getLemmas() == null && needsLemmas(page)) {
+                page.setLemmas(morphology.getLemmaList(page.getIndexedText()));
+            }
+            writeStage.submit(page);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completePage(page);
+        } catch (Exception e) {
+            failSite(siteCrawl, e);
+            completePage(page);
+        }
+    }
+
+    private void write(List<CrawledPage> batch) {
+        Map<SiteCrawl, List<CrawledPage>> pagesBySite = batch.stream()
+                .collect(Collectors.groupingBy(CrawledPage::getSiteCrawl, LinkedHashMap::new, Collectors.toList()));
+        pagesBySite.forEach(this::writeSitePages);
+    }
+
+    private void writeSitePages(SiteCrawl siteCrawl, List<CrawledPage> pages) {
+        try {
+            if (isDropped(siteCrawl)) {
+                return;
+            }
+
+            List<CrawledPage> changedPages = new ArrayList<>();
+            List<PageEntity> pageEntities = new ArrayList<>();
+            for (CrawledPage page : pages) {
+                if (page.isSkipped() || page.isStoredCopyReused()) {
+                    continue;
+                }
+                if (page.isContentUnchanged()) {
+                    pageRepository.updateValidators(page.getPreviousPage().getId(), page.getEtag(), page.getLastModified());
+                    continue;
+                }
+
+                PageEntity pageEntity = createPageEntity(siteCrawl.getSiteEntity(), page);
+                if (page.getPreviousPage() != null) {
+                    pageEntity.setId(page.getPreviousPage().getId());
+                }
+                changedPages.add(page);
+                pageEntities.add(pageEntity);
+            }
+
+            Map<PageEntity, Map<String, Integer>> lemmasByPage = new LinkedHashMap<>();
+            for (int i = 0; i < changedPages.size(); i++) {
+                Map<String, Integer> lemmas = changedPages.get(i).getLemmas();
+                if (lemmas != null) {
+                    lemmasByPage.put(pageEntities.get(i), lemmas);
+                }
+            }
+            if (bulkIndexBuilder != null) {
+                bulkIndexBuilder.addPages(siteCrawl.getSiteEntity(), pageEntities, lemmasByPage);
+            } else {
+                pageWriterService.writePages(pageEntities, lemmasByPage);
+            }
+            pages.forEach(page -> siteCrawl.markDone(frontierKey(page.getUrl())));
+            updateSiteStatusTime(siteCrawl);
+        } catch (Exception e) {
+            failSite(siteCrawl, e);
+        } finally {
+            pages.forEach(this::completePage);
+        }
+    }
+
+    private void enqueue(SiteCrawl siteCrawl, String link) {
+        urlCanonicalizer.canonicalize(link, siteCrawl.getRootUrl()).ifPresent(url -> {
+            long urlHash = frontierKey(url);
+            if (siteCrawl.markVisited(urlHash)) {
+                siteCrawl.enqueue(url, urlHash);
+                signalWork();
+            }
+        });
+    }
+
+    private long frontierKey(String canonicalUrl) {
+        return VisitedUrlSet.hash(urlCanonicalizer.dedupKey(canonicalUrl));
+    }
+
+    private void checkpoint() {
+        for (SiteCrawl siteCrawl : siteCrawls) {
+            synchronized (siteCrawl) {
+                if (siteCrawl.isCheckpointClosed()) {
+                    continue;
+                }
+                try {
+                    int siteId = siteCrawl.getSiteEntity().getId();
+                    List<FrontierEntry> queued = siteCrawl.drainUnsavedQueued();
+                    if (!queued.isEmpty()) {
+                        frontierRepository.insertQueued(siteId, queued);
+                    }
+                    List<Long> done = siteCrawl.drainUnsavedDone();
+                    if (!done.isEmpty()) {
+                        frontierRepository.markDone(siteId, done);
+                    }
+                } catch (Exception e) {
+                    log.error("Не удалось сохранить очередь обхода сайта {}: {}",
+                            siteCrawl.getSiteEntity().getUrl(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void closeFrontier(SiteCrawl siteCrawl) {
+        synchronized (siteCrawl) {
+            siteCrawl.closeCheckpoint();
+            frontierRepository.deleteBySiteId(siteCrawl.getSiteEntity().getId());
+        }
+    }
+
+    private void releaseFetch(SiteCrawl siteCrawl) {
+        siteCrawl.getOutstandingFetches().decrementAndGet();
+        fetchPermits.release();
+        signalWork();
+    }
+
+    private void completePage(CrawledPage page) {
+        completeTask(page.getSiteCrawl());
+    }
+
+    private void completeTask(SiteCrawl siteCrawl) {
+        if (siteCrawl.taskCompleted()) {
+            log.info("Обход сайта {} завершён", siteCrawl.getSiteEntity().getUrl());
+            if (siteCrawl.isIncremental()) {
+                removeDisappearedPages(siteCrawl);
+            }
+            if (!isDropped(siteCrawl)) {
+                closeFrontier(siteCrawl);
+            }
+            lemmaService.closeDictionary(siteCrawl.getSiteEntity());
+            signalWork();
+        }
+    }
+
+    private void removeDisappearedPages(SiteCrawl siteCrawl) {
+        if (isDropped(siteCrawl)) {
+            return;
+        }
+        try {
+            List<Integer> pageIds = siteCrawl.getRemainingPreviousPages().stream()
+                    .map(PageSnapshot::getId)
+                    .toList();
+            log.info("Удаляем {} исчезнувших страниц сайта {}", pageIds.size(), siteCrawl.getSiteEntity().getUrl());
+
+            pageIds.forEach(lemmaService::removePageLemmas);
+            for (int from = 0; from < pageIds.size(); from += DELETE_BATCH_SIZE) {
+                pageRepository.deleteAllByIdIn(pageIds.subList(from, Math.min(pageIds.size(), from + DELETE_BATCH_SIZE)));
+            }
+            lemmaService.deleteUnusedLemmas(siteCrawl.getSiteEntity());
+        } catch (Exception e) {
+            failSite(siteCrawl, e);
+        }
+    }
+
+    private boolean isDropped(SiteCrawl siteCrawl) {
+        return !running || siteCrawl.isFailed();
+    }
+
+    private void failSite(SiteCrawl siteCrawl, Exception e) {
+        SiteEntity siteEntity = siteCrawl.getSiteEntity();
+        synchronized (siteEntity) {
+            if (siteCrawl.isFailed()) {
+                return;
+            }
+            log.error("Ошибка при индексации страницы: ", e);
+            siteCrawl.markFailed();
+            siteCrawl.clearFrontier();
+            siteEntity.setStatus(Status.FAILED);
+            siteEntity.setLastError("Ошибка при индексации страницы: " + e.getMessage());
+            siteEntity.setStatusTime(LocalDateTime.now());
+            siteRepository.saveAndFlush(siteEntity);
+        }
+    }
+
+    private void updateSiteStatusTime(SiteCrawl siteCrawl) {
+        SiteEntity siteEntity = siteCrawl.getSiteEntity();
+        synchronized (siteEntity) {
+            if (siteCrawl.isFailed()) {
+                return;
+            }
+            siteEntity.setStatusTime(LocalDateTime.now());
+            siteRepository.save(siteEntity);
+        }
+    }
+
+    private PageEntity createPageEntity(SiteEntity siteEntity, CrawledPage page) {
+        PageEntity pageEntity = new PageEntity();
+        pageEntity.setSiteEntity(siteEntity);
+        pageEntity.setPath(urlCanonicalizer.relativePath(page.getUrl()));
+        pageEntity.setCode(page.getCode());
+        pageEntity.setContent(page.getContent() != null ? page.getContent() : "");
+        pageEntity.setTitle(page.getTitle());
+        pageEntity.setText(page.getText());
+        pageEntity.setEtag(page.getEtag());
+        pageEntity.setLastModified(page.getLastModified());
+        pageEntity.setContentHash(page.getContentHash());
+        return pageEntity;
+    }
+
+    private void awaitWork() throws InterruptedException {
+        dispatchLock.lock();
+        try {
+            workAvailable.await(50, TimeUnit.MILLISECONDS);
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    private void signalWork() {
+        dispatchLock.lock();
+        try {
+            workAvailable.signalAll();
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    private void logStatistics() {
+        PipelineStatistics statistics = getStatistics();
+        statistics.getStages().forEach(stage -> log.info(
+                "Этап {}: в работе {}/{}, в очереди {}, обработано {} ({} ошибок), {} в секунду",
+                stage.getName(), stage.getInFlight(), stage.getParallelism(), stage.getQueueSize(),
+                stage.getProcessed(), stage.getFailed(), String.format("%.1f", stage.getItemsPerSecond())));
+        statistics.getLemmaCaches().forEach(cache -> log.info(
+                "Кэш лемм {}: {} из {} словоформ, попаданий {}%",
+                cache.getName(), cache.getSize(), cache.getCapacity(), String.format("%.1f", cache.getHitRate() * 100)));
+    }
+}
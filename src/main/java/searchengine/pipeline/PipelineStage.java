@@ -0,0 +1,106 @@
+package searchengine.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import searchengine.dto.statistics.StageStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Этап конвейера индексации: ограниченная очередь и собственный пул потоков.
+ * Если очередь заполнена, {@link #submit} блокирует предыдущий этап, пока этот не освободится.
+ */
+@Slf4j
+public class PipelineStage<T> {
+
+    private final String name;
+    private final int parallelism;
+    private final int batchSize;
+    private final BlockingQueue<T> queue;
+    private final Consumer<List<T>> handler;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean running;
+    private long startNanos;
+
+    public PipelineStage(String name, int parallelism, int capacity, int batchSize, Consumer<List<T>> handler) {
+        this.name = name;
+        this.parallelism = Math.max(1, parallelism);
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.handler = handler;
+    }
+
+    public void start() {
+        running = true;
+        startNanos = System.nanoTime();
+        for (int i = 0; i < parallelism; i++) {
+            Thread worker = new Thread(this::runWorker, "pipeline-" + name + "-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public void submit(T item) throws InterruptedException {
+        queue.put(item);
+    }
+
+    private void runWorker() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                T item = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (item == null) {
+                    continue;
+                }
+                batch.add(item);
+                queue.drainTo(batch, batchSize - 1);
+
+                busyWorkers.incrementAndGet();
+                try {
+                    handler.accept(batch);
+                    processed.addAndGet(batch.size());
+                } catch (Exception e) {
+                    failed.addAndGet(batch.size());
+                    log.error("Ошибка на этапе конвейера {}: {}", name, e.getMessage(), e);
+                } finally {
+                    busyWorkers.decrementAndGet();
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public List<T> shutdown(long timeoutMillis) throws InterruptedException {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (worker.isAlive()) {
+                worker.interrupt();
+            }
+        }
+        List<T> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        return remaining;
+    }
+
+    public StageStatistics getStatistics() {
+        double elapsedSeconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        return new StageStatistics(name, parallelism, busyWorkers.get(), queue.size(),
+                queue.size() + queue.remainingCapacity(), processed.get(), failed.get(),
+                processed.get() / elapsedSeconds);
+    }
+}
@@ -0,0 +1,180 @@
+package searchengine.pipeline;
+
+import searchengine.model.FrontierEntry;
+import searchengine.model.PageSnapshot;
+import searchengine.model.SiteEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Состояние обхода одного сайта: очередь ссылок на загрузку, посещённые ссылки
+ * и число страниц, ещё не прошедших все этапы конвейера.
+ * Новые и обработанные ссылки копятся до очередной контрольной точки, на которой
+ * они сохраняются в таблицу crawl_frontier.
+ */
+public class SiteCrawl {
+
+    private final SiteEntity siteEntity;
+    private final String rootUrl;
+    private final Queue<String> frontier = new ConcurrentLinkedQueue<>();
+    private final VisitedUrlSet visitedLinks;
+    private final Map<String, PageSnapshot> previousPages = new ConcurrentHashMap<>();
+    private final List<PageSnapshot> duplicatePages = new ArrayList<>();
+    private final AtomicInteger pendingPages = new AtomicInteger();
+    private final AtomicInteger outstandingFetches = new AtomicInteger();
+    private final Queue<FrontierEntry> unsavedQueued = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> unsavedDone = new ConcurrentLinkedQueue<>();
+    private volatile boolean incremental;
+    private volatile boolean resumed;
+    private volatile boolean checkpointClosed;
+    private volatile boolean failed;
+
+    public SiteCrawl(SiteEntity siteEntity, String rootUrl, int expectedUrls) {
+        this.siteEntity = siteEntity;
+        this.rootUrl = rootUrl;
+        this.visitedLinks = new VisitedUrlSet(expectedUrls);
+    }
+
+    public SiteEntity getSiteEntity() {
+        return siteEntity;
+    }
+
+    /**
+     * Страницы прошлого обхода по ключу pathKey(page.path). Строки с совпадающим ключом,
+     * оставшиеся от старых версий, не сопоставляются ни с одним адресом и удаляются как исчезнувшие.
+     */
+    public void setPreviousPages(Collection<PageSnapshot> pages, Function<String, String> pathKey) {
+        putPreviousPages(pages, pathKey);
+        incremental = true;
+    }
+
+    public void setStoredPages(Collection<PageSnapshot> pages, Function<String, String> pathKey) {
+        putPreviousPages(pages, pathKey);
+        resumed = true;
+    }
+
+    private void putPreviousPages(Collection<PageSnapshot> pages, Function<String, String> pathKey) {
+        pages.forEach(page -> {
+            if (previousPages.putIfAbsent(pathKey.apply(page.getPath()), page) != null) {
+                duplicatePages.add(page);
+            }
+        });
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    public PageSnapshot takePreviousPage(String pathKey) {
+        return previousPages.remove(pathKey);
+    }
+
+    public List<PageSnapshot> getRemainingPreviousPages() {
+        List<PageSnapshot> remaining = new ArrayList<>(previousPages.values());
+        remaining.addAll(duplicatePages);
+        return remaining;
+    }
+
+    public String getRootUrl() {
+        return rootUrl;
+    }
+
+    public boolean markVisited(long urlHash) {
+        return visitedLinks.addHash(urlHash);
+    }
+
+    public void enqueue(String url, long urlHash) {
+        if (!checkpointClosed) {
+            unsavedQueued.add(new FrontierEntry(urlHash, url, false));
+        }
+        enqueueRestored(url);
+    }
+
+    public void enqueueRestored(String url) {
+        pendingPages.incrementAndGet();
+        frontier.add(url);
+    }
+
+    public void markDone(long urlHash) {
+        if (!checkpointClosed) {
+            unsavedDone.add(urlHash);
+        }
+    }
+
+    public List<FrontierEntry> drainUnsavedQueued() {
+        return drain(unsavedQueued);
+    }
+
+    public List<Long> drainUnsavedDone() {
+        return drain(unsavedDone);
+    }
+
+    public boolean isCheckpointClosed() {
+        return checkpointClosed;
+    }
+
+    public void closeCheckpoint() {
+        checkpointClosed = true;
+        unsavedQueued.clear();
+        unsavedDone.clear();
+    }
+
+    private static <T> List<T> drain(Queue<T> queue) {
+        List<T> drained = new ArrayList<>();
+        T item;
+        while ((item = queue.poll()) != null) {
+            drained.add(item);
+        }
+        return drained;
+    }
+
+    public String pollFrontier() {
+        return frontier.poll();
+    }
+
+    public int frontierSize() {
+        return frontier.size();
+    }
+
+    public void clearFrontier() {
+        while (frontier.poll() != null) {
+            pendingPages.decrementAndGet();
+        }
+    }
+
+    public void taskStarted() {
+        pendingPages.incrementAndGet();
+    }
+
+    public boolean taskCompleted() {
+        return pendingPages.decrementAndGet() == 0;
+    }
+
+    public boolean isFinished() {
+        return pendingPages.get() == 0;
+    }
+
+    public AtomicInteger getOutstandingFetches() {
+        return outstandingFetches;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void markFailed() {
+        failed = true;
+    }
+}
@@ -0,0 +1,86 @@
+package searchengine.pipeline;
+
+/**
+ * Множество посещённых ссылок одного сайта. Вместо строк хранит 64-битные хеши
+ * в массивах long с открытой адресацией: около 10–16 байт на ссылку против сотен байт
+ * у строки в ConcurrentHashMap. Вероятность коллизии при 10 млн ссылок — порядка 10^-6.
+ * Для конкурентного доступа множество разбито на независимые сегменты.
+ */
+public class VisitedUrlSet {
+
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public VisitedUrlSet(int expectedUrls) {
+        int stripeCapacity = Math.max(16, expectedUrls / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+    }
+
+    public boolean addHash(long hash) {
+        return stripes[(int) (hash >>> 58)].add(hash);
+    }
+
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static class Stripe {
+        private long[] table;
+        private int size;
+
+        private Stripe(int expected) {
+            table = new long[tableSizeFor(expected * 2)];
+        }
+
+        private synchronized boolean add(long hash) {
+            if (insert(table, hash)) {
+                if (++size * 4 > table.length * 3) {
+                    resize();
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private void resize() {
+            long[] resized = new long[table.length * 2];
+            for (long hash : table) {
+                if (hash != 0) {
+                    insert(resized, hash);
+                }
+            }
+            table = resized;
+        }
+
+        private static boolean insert(long[] table, long hash) {
+            int mask = table.length - 1;
+            int i = (int) hash & mask;
+            while (table[i] != 0) {
+                if (table[i] == hash) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = hash;
+            return true;
+        }
+
+        private static int tableSizeFor(int capacity) {
+            int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+            return size > 0 ? size : 1 << 30;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import searchengine.model.IndexRow;
+import searchengine.model.LemmaEntity;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * DDL и загрузка для режима bulk: промежуточные таблицы page_staging, lemma_staging,
+ * search_index_staging создаются без вторичных индексов и внешних ключей, заполняются
+ * пакетами, после чего получают индексы и внешние ключи живых таблиц и подменяют их одним RENAME TABLE.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class BulkIndexRepository {
+
+    public static final String STAGING_SUFFIX = "_staging";
+    private static final String OLD_SUFFIX = "_old";
+    private static final String FOREIGN_KEY_SUFFIX = "_bulk";
+    private static final List<String> TABLES = List.of("page", "lemma", "search_index");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    public void createStagingTables() {
+        dropStagingTables();
+        for (String table : TABLES) {
+            String staging = table + STAGING_SUFFIX;
+            jdbcTemplate.execute("CREATE TABLE " + staging + " LIKE " + table);
+            List<String> indexes = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT INDEX_NAME FROM information_schema.STATISTICS " +
+                            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME <> 'PRIMARY'",
+                    String.class, staging);
+            if (!indexes.isEmpty()) {
+                jdbcTemplate.execute("ALTER TABLE " + staging + " " + indexes.stream()
+                        .map(index -> "DROP INDEX `" + index + "`")
+                        .collect(Collectors.joining(", ")));
+            }
+        }
+    }
+
+    /**
+     * Переносит в промежуточные таблицы строки сайтов, которые не перестраиваются.
+     */
+    public void copyRowsExceptSites(Collection<Integer> rebuiltSiteIds) {
+        String siteFilter = rebuiltSiteIds.isEmpty() ? "" : " WHERE site_id NOT IN (:siteIds)";
+        String pageFilter = rebuiltSiteIds.isEmpty() ? "" : " WHERE p.site_id NOT IN (:siteIds)";
+        MapSqlParameterSource parameters = new MapSqlParameterSource("siteIds", rebuiltSiteIds);
+
+        namedParameterJdbcTemplate.update(
+                "INSERT INTO page_staging SELECT * FROM page" + siteFilter, parameters);
+        namedParameterJdbcTemplate.update(
+                "INSERT INTO lemma_staging SELECT * FROM lemma" + siteFilter, parameters);
+        namedParameterJdbcTemplate.update(
+                "INSERT INTO search_index_staging SELECT si.* FROM search_index si " +
+                        "JOIN page p ON p.id = si.page_id" + pageFilter, parameters);
+    }
+
+    public int nextLemmaId() {
+        Integer maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM lemma_staging", Integer.class);
+        return maxId == null ? 1 : maxId + 1;
+    }
+
+    public void insertLemmas(List<LemmaEntity> lemmas, int batchSize) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO lemma_staging (id, site_id, lemma, frequency) VALUES (?, ?, ?, ?)",
+                lemmas, batchSize, (statement, lemma) -> {
+                    statement.setInt(1, lemma.getId());
+                    statement.setInt(2, lemma.getSiteEntity().getId());
+                    statement.setString(3, lemma.getLemma());
+                    statement.setInt(4, lemma.getFrequency());
+                });
+    }
+
+    public void insertIndexes(List<IndexRow> rows, int batchSize) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO search_index_staging (page_id, lemma_id, `rank`) VALUES (?, ?, ?)",
+                rows, batchSize, (statement, row) -> {
+                    statement.setInt(1, row.getPageId());
+                    statement.setInt(2, row.getLemmaId());
+                    statement.setFloat(3, row.getRank());
+                });
+    }
+
+    /**
+     * Строит на промежуточных таблицах вторичные индексы и внешние ключи живых таблиц и подменяет
+     * таблицы одним RENAME TABLE. Внешние ключи добавляются при выключенном foreign_key_checks:
+     * данные не проверяются и таблица не копируется. После подмены удаляются только старые таблицы.
+     */
+    public void publishStagingTables() {
+        Map<String, List<String>> definitions = new LinkedHashMap<>();
+        for (String table : TABLES) {
+            List<String> tableDefinitions = new ArrayList<>();
+            findIndexDefinitions(table).forEach(index -> tableDefinitions.add("ADD " + index));
+            tableDefinitions.addAll(findForeignKeyDefinitions(table));
+            definitions.put(table + STAGING_SUFFIX, tableDefinitions);
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET foreign_key_checks = 0");
+                try {
+                    for (Map.Entry<String, List<String>> entry : definitions.entrySet()) {
+                        if (!entry.getValue().isEmpty()) {
+                            log.info("Создаём индексы и внешние ключи таблицы {}", entry.getKey());
+                            statement.execute("ALTER TABLE " + entry.getKey() + " " + String.join(", ", entry.getValue()));
+                        }
+                    }
+                } finally {
+                    statement.execute("SET foreign_key_checks = 1");
+                }
+                statement.execute("RENAME TABLE " + TABLES.stream()
+                        .map(table -> table + " TO " + table + OLD_SUFFIX + ", " + table + STAGING_SUFFIX + " TO " + table)
+                        .collect(Collectors.joining(", ")));
+            }
+            return null;
+        });
+
+        for (int i = TABLES.size() - 1; i >= 0; i--) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLES.get(i) + OLD_SUFFIX);
+        }
+    }
+
+    public void dropStagingTables() {
+        for (int i = TABLES.size() - 1; i >= 0; i--) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLES.get(i) + STAGING_SUFFIX);
+        }
+    }
+
+    private List<String> findIndexDefinitions(String table) {
+        Map<String, List<String>> columnsByIndex = new LinkedHashMap<>();
+        Map<String, Boolean> uniqueByIndex = new LinkedHashMap<>();
+        jdbcTemplate.query(
+                "SELECT INDEX_NAME, NON_UNIQUE, COLUMN_NAME, SUB_PART FROM information_schema.STATISTICS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME <> 'PRIMARY' " +
+                        "ORDER BY INDEX_NAME, SEQ_IN_INDEX",
+                resultSet -> {
+                    String index = resultSet.getString("INDEX_NAME");
+                    Object subPart = resultSet.getObject("SUB_PART");
+                    columnsByIndex.computeIfAbsent(index, name -> new ArrayList<>())
+                            .add("`" + resultSet.getString("COLUMN_NAME") + "`" + (subPart != null ? "(" + subPart + ")" : ""));
+                    uniqueByIndex.put(index, resultSet.getInt("NON_UNIQUE") == 0);
+                },
+                table);
+
+        List<String> definitions = new ArrayList<>();
+        columnsByIndex.forEach((index, columns) -> definitions.add(
+                (uniqueByIndex.get(index) ? "UNIQUE " : "") + "INDEX `" + index + "` (" + String.join(", ", columns) + ")"));
+        return definitions;
+    }
+
+    /**
+     * Внешние ключи живой таблицы в виде предложений ADD CONSTRAINT для промежуточной. Ссылки на
+     * перестраиваемые таблицы ведут на их промежуточные копии, а RENAME TABLE переносит их на новые имена.
+     * Имена ограничений уникальны в схеме, поэтому при каждой подмене к ним добавляется
+     * или снимается суффикс {@value #FOREIGN_KEY_SUFFIX}.
+     */
+    private List<String> findForeignKeyDefinitions(String table) {
+        return jdbcTemplate.query(
+                "SELECT k.CONSTRAINT_NAME, k.COLUMN_NAME, k.REFERENCED_TABLE_NAME, k.REFERENCED_COLUMN_NAME, r.DELETE_RULE " +
+                        "FROM information_schema.KEY_COLUMN_USAGE k " +
+                        "JOIN information_schema.REFERENTIAL_CONSTRAINTS r " +
+                        "ON r.CONSTRAINT_SCHEMA = k.CONSTRAINT_SCHEMA AND r.CONSTRAINT_NAME = k.CONSTRAINT_NAME " +
+                        "WHERE k.TABLE_SCHEMA = DATABASE() AND k.TABLE_NAME = ? AND k.REFERENCED_TABLE_NAME IS NOT NULL",
+                (resultSet, rowNum) -> "ADD CONSTRAINT `" + stagingConstraintName(resultSet.getString("CONSTRAINT_NAME")) + "`" +
+                        " FOREIGN KEY (`" + resultSet.getString("COLUMN_NAME") + "`)" +
+                        " REFERENCES `" + stagingTableName(resultSet.getString("REFERENCED_TABLE_NAME")) + "`" +
+                        " (`" + resultSet.getString("REFERENCED_COLUMN_NAME") + "`)" +
+                        " ON DELETE " + resultSet.getString("DELETE_RULE"),
+                table);
+    }
+
+    private static String stagingTableName(String table) {
+        return TABLES.contains(table) ? table + STAGING_SUFFIX : table;
+    }
+
+    private static String stagingConstraintName(String constraint) {
+        return constraint.endsWith(FOREIGN_KEY_SUFFIX)
+                ? constraint.substring(0, constraint.length() - FOREIGN_KEY_SUFFIX.length())
+                : constraint + FOREIGN_KEY_SUFFIX;
+    }
+}
@@ -0,0 +1,74 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import searchengine.model.FrontierEntry;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CrawlFrontierRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Запоминает режим обхода сайта, чтобы продолжение после остановки шло в том же режиме.
+     */
+    public void saveCrawlMode(int siteId, boolean incremental) {
+        jdbcTemplate.update(
+                "INSERT INTO crawl_state (site_id, incremental) VALUES (?, ?) " +
+                        "ON DUPLICATE KEY UPDATE incremental = VALUES(incremental)",
+                siteId, incremental);
+    }
+
+    /**
+     * Был ли прерванный обход инкрементальным; очередь без сохранённого режима считается полным обходом.
+     */
+    public boolean isIncrementalCrawl(int siteId) {
+        List<Boolean> incremental = jdbcTemplate.queryForList(
+                "SELECT incremental FROM crawl_state WHERE site_id = ?", Boolean.class, siteId);
+        return !incremental.isEmpty() && Boolean.TRUE.equals(incremental.get(0));
+    }
+
+    public void insertQueued(int siteId, List<FrontierEntry> entries) {
+        jdbcTemplate.batchUpdate(
+                "INSERT IGNORE INTO crawl_frontier (site_id, url_hash, url, status) VALUES (?, ?, ?, 'QUEUED')",
+                entries, entries.size(), (statement, entry) -> {
+                    statement.setInt(1, siteId);
+                    statement.setLong(2, entry.getUrlHash());
+                    statement.setString(3, entry.getUrl());
+                });
+    }
+
+    public void markDone(int siteId, List<Long> urlHashes) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE crawl_frontier SET status = 'DONE' WHERE site_id = ? AND url_hash = ?",
+                urlHashes, urlHashes.size(), (statement, urlHash) -> {
+                    statement.setInt(1, siteId);
+                    statement.setLong(2, urlHash);
+                });
+    }
+
+    public List<FrontierEntry> findBySiteId(int siteId) {
+        return jdbcTemplate.query(
+                "SELECT url_hash, url, status FROM crawl_frontier WHERE site_id = ?",
+                (resultSet, rowNum) -> new FrontierEntry(
+                        resultSet.getLong("url_hash"),
+                        resultSet.getString("url"),
+                        "DONE".equals(resultSet.getString("status"))),
+                siteId);
+    }
+
+    public boolean existsBySiteId(int siteId) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS(SELECT 1 FROM crawl_frontier WHERE site_id = ?)", Boolean.class, siteId);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    public void deleteBySiteId(int siteId) {
+        jdbcTemplate.update("DELETE FROM crawl_frontier WHERE site_id = ?", siteId);
+        jdbcTemplate.update("DELETE FROM crawl_state WHERE site_id = ?", siteId);
+    }
+}
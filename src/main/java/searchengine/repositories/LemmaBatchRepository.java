@@ -0,0 +1,185 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import searchengine.model.IndexRow;
+import searchengine.model.PageScores;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Множественные операции с таблицами lemma и search_index в обход Hibernate.
+ * IDENTITY-ключи отключают пакетную вставку в JPA, здесь же вставки отправляются
+ * пакетами, которые драйвер с rewriteBatchedStatements склеивает в многострочные INSERT.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LemmaBatchRepository {
+
+    private static final int SELECT_CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Увеличивает frequency лемм сайта на заданные значения, создавая недостающие строки.
+     * Опирается на уникальный ключ (site_id, lemma).
+     */
+    public void upsertFrequencies(int siteId, Map<String, Integer> increments, int batchSize) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(increments.entrySet());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO lemma (site_id, lemma, frequency) VALUES (?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE frequency = frequency + VALUES(frequency)",
+                entries, batchSize, (statement, entry) -> {
+                    statement.setInt(1, siteId);
+                    statement.setString(2, entry.getKey());
+                    statement.setInt(3, entry.getValue());
+                });
+    }
+
+    public Map<String, Integer> findIds(int siteId, Collection<String> lemmas) {
+        Map<String, Integer> ids = new HashMap<>(lemmas.size() * 2);
+        List<String> lemmaList = new ArrayList<>(lemmas);
+        for (int from = 0; from < lemmaList.size(); from += SELECT_CHUNK_SIZE) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("siteId", siteId)
+                    .addValue("lemmas", lemmaList.subList(from, Math.min(lemmaList.size(), from + SELECT_CHUNK_SIZE)));
+            namedParameterJdbcTemplate.query(
+                    "SELECT id, lemma FROM lemma WHERE site_id = :siteId AND lemma IN (:lemmas)",
+                    parameters,
+                    resultSet -> {
+                        ids.put(resultSet.getString("lemma"), resultSet.getInt("id"));
+                    });
+        }
+        return ids;
+    }
+
+    /**
+     * Текущие строки search_index страницы, ключ — текст леммы.
+     */
+    public Map<String, IndexRow> findPageIndexes(int pageId) {
+        Map<String, IndexRow> rows = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT l.lemma, i.lemma_id, i.`rank` FROM search_index i " +
+                        "JOIN lemma l ON l.id = i.lemma_id WHERE i.page_id = ?",
+                resultSet -> {
+                    rows.put(resultSet.getString("lemma"),
+                            new IndexRow(pageId, resultSet.getInt("lemma_id"), resultSet.getFloat("rank")));
+                },
+                pageId);
+        return rows;
+    }
+
+    /**
+     * Убирает леммы со страницы: удаляет строки search_index, уменьшает frequency
+     * и удаляет только те из затронутых лемм, которые больше нигде не встречаются.
+     */
+    public void removePageIndexes(int pageId, Collection<Integer> lemmaIds) {
+        List<Integer> idList = new ArrayList<>(lemmaIds);
+        for (int from = 0; from < idList.size(); from += SELECT_CHUNK_SIZE) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("pageId", pageId)
+                    .addValue("lemmaIds", idList.subList(from, Math.min(idList.size(), from + SELECT_CHUNK_SIZE)));
+            namedParameterJdbcTemplate.update(
+                    "DELETE FROM search_index WHERE page_id = :pageId AND lemma_id IN (:lemmaIds)", parameters);
+            namedParameterJdbcTemplate.update(
+                    "UPDATE lemma SET frequency = frequency - 1 WHERE id IN (:lemmaIds)", parameters);
+            namedParameterJdbcTemplate.update(
+                    "DELETE FROM lemma WHERE id IN (:lemmaIds) AND frequency <= 0", parameters);
+        }
+    }
+
+    public void updateIndexRanks(List<IndexRow> rows, int batchSize) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE search_index SET `rank` = ? WHERE page_id = ? AND lemma_id = ?",
+                rows, batchSize, (statement, row) -> {
+                    statement.setFloat(1, row.getRank());
+                    statement.setInt(2, row.getPageId());
+                    statement.setInt(3, row.getLemmaId());
+                });
+    }
+
+    /**
+     * Число страниц сайта, у которых есть хотя бы одна строка search_index.
+     */
+    public int countIndexedPages(int siteId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM page p WHERE p.site_id = ? " +
+                        "AND EXISTS (SELECT 1 FROM search_index i WHERE i.page_id = p.id)",
+                Integer.class, siteId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Лемма → число страниц сайта, на которых она встречается.
+     */
+    public Map<String, Integer> findFrequencies(int siteId) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT lemma, frequency FROM lemma WHERE site_id = ? AND frequency > 0",
+                resultSet -> {
+                    frequencies.put(resultSet.getString("lemma"), resultSet.getInt("frequency"));
+                },
+                siteId);
+        return frequencies;
+    }
+
+    /**
+     * Потоково читает постинги сайта в порядке (lemma_id, page_id), не загружая результат в память целиком.
+     */
+    public void forEachSitePosting(int siteId, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT i.lemma_id, i.page_id, i.`rank` FROM search_index i " +
+                            "JOIN lemma l ON l.id = i.lemma_id WHERE l.site_id = ? ORDER BY i.lemma_id, i.page_id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Integer.MIN_VALUE включает потоковую выдачу строк в драйвере MySQL
+            statement.setFetchSize(Integer.MIN_VALUE);
+            statement.setInt(1, siteId);
+            return statement;
+        }, handler);
+    }
+
+    /**
+     * Страницы, содержащие все заданные леммы, с суммой их rank — один сгруппированный запрос
+     * вместо пересечения множеств и отдельного запроса релевантности для каждой страницы.
+     * Леммы должны принадлежать одному сайту.
+     */
+    public PageScores findPageScores(Collection<Integer> lemmaIds) {
+        if (lemmaIds.isEmpty()) {
+            return PageScores.EMPTY;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("lemmaIds", lemmaIds)
+                .addValue("lemmaCount", lemmaIds.size());
+        PageScores.Builder scores = new PageScores.Builder();
+        namedParameterJdbcTemplate.query(
+                "SELECT page_id, SUM(`rank`) AS relevance FROM search_index WHERE lemma_id IN (:lemmaIds) " +
+                        "GROUP BY page_id HAVING COUNT(*) = :lemmaCount ORDER BY page_id",
+                parameters,
+                resultSet -> {
+                    scores.add(resultSet.getInt("page_id"), resultSet.getFloat("relevance"));
+                });
+        return scores.build();
+    }
+
+    public void insertIndexes(List<IndexRow> rows, int batchSize) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO search_index (page_id, lemma_id, `rank`) VALUES (?, ?, ?)",
+                rows, batchSize, (statement, row) -> {
+                    statement.setInt(1, row.getPageId());
+                    statement.setInt(2, row.getLemmaId());
+                    statement.setFloat(3, row.getRank());
+                });
+    }
+}
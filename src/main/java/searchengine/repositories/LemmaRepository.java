@@ -16,16 +16,13 @@ import java.util.Optional;
 public interface LemmaRepository extends JpaRepository<LemmaEntity, Integer> {
     @Modifying
     @Transactional
-    @Query(value = "DELETE FROM lemma l WHERE l.frequency = 0", nativeQuery = true)
-    void deleteUnusedLemmas();
+    @Query(value = "DELETE FROM lemma WHERE site_id = :siteId AND frequency <= 0", nativeQuery = true)
+    void deleteUnusedLemmasBySite(@Param("siteId") Integer siteId);
 
     Optional<LemmaEntity> findByLemmaAndSiteEntity(String lemmaText, SiteEntity siteEntity);
 
     int countBySiteEntity(SiteEntity siteEntity);
 
-    @Query("SELECT COUNT(l) FROM LemmaEntity l WHERE l.lemma = :lemma AND l.siteEntity IN :sites")
-    int countByLemmaAndSites(@Param("lemma") String lemma, @Param("sites") List<SiteEntity> sites);
-
     @Query(value = "SELECT l.* FROM lemma l WHERE l.lemma IN :lemmas", nativeQuery = true)
     List<LemmaEntity> findLemmaEntityListByLemmasOnly(@Param("lemmas") List<String> lemmas);
 
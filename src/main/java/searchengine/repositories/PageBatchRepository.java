@@ -0,0 +1,89 @@
+package searchengine.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import searchengine.model.PageEntity;
+import searchengine.util.TextCompression;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Пакетная запись страниц. Hibernate не объединяет вставки в пакеты при IDENTITY-ключах,
+ * поэтому страницы вставляются через JDBC-пакет, а id забираются из сгенерированных ключей.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PageBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO %s (site_id, path, code, content, title, text, etag, last_modified, content_hash) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL =
+            "UPDATE page SET code = ?, content = ?, title = ?, text = ?, etag = ?, last_modified = ?, content_hash = ? " +
+                    "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertPages(List<PageEntity> pages, int batchSize) {
+        insertPages("page", pages, batchSize);
+    }
+
+    public void insertPages(String table, List<PageEntity> pages, int batchSize) {
+        if (pages.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    String.format(INSERT_SQL, table), Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < pages.size(); from += batchSize) {
+                    List<PageEntity> chunk = pages.subList(from, Math.min(pages.size(), from + batchSize));
+                    for (PageEntity page : chunk) {
+                        statement.setInt(1, page.getSiteEntity().getId());
+                        statement.setString(2, page.getPath());
+                        statement.setInt(3, page.getCode());
+                        statement.setBytes(4, TextCompression.compress(page.getContent()));
+                        statement.setString(5, page.getTitle());
+                        statement.setString(6, page.getText());
+                        statement.setString(7, page.getEtag());
+                        statement.setString(8, page.getLastModified());
+                        statement.setString(9, page.getContentHash());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    assignGeneratedIds(statement, chunk);
+                }
+            }
+            return null;
+        });
+    }
+
+    public void updatePages(List<PageEntity> pages, int batchSize) {
+        jdbcTemplate.batchUpdate(UPDATE_SQL, pages, batchSize, (statement, page) -> {
+            statement.setInt(1, page.getCode());
+            statement.setBytes(2, TextCompression.compress(page.getContent()));
+            statement.setString(3, page.getTitle());
+            statement.setString(4, page.getText());
+            statement.setString(5, page.getEtag());
+            statement.setString(6, page.getLastModified());
+            statement.setString(7, page.getContentHash());
+            statement.setInt(8, page.getId());
+        });
+    }
+
+    private void assignGeneratedIds(PreparedStatement statement, List<PageEntity> pages) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            for (PageEntity page : pages) {
+                if (!keys.next()) {
+                    throw new SQLException("Не получен id для страницы " + page.getPath());
+                }
+                page.setId(keys.getInt(1));
+            }
+        }
+    }
+}
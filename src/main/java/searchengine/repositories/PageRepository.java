@@ -1,17 +1,47 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.PageEntity;
+import searchengine.model.PageSearchView;
+import searchengine.model.PageSnapshot;
 import searchengine.model.SiteEntity;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PageRepository extends JpaRepository<PageEntity, Integer> {
 
-    boolean existsByPath(String path);
     Optional<PageEntity> findByPathAndSiteEntity(String url, SiteEntity siteEntity);
     int countBySiteEntity(SiteEntity siteEntity);
-}
 
+    @Query(value = "SELECT id, path, etag, last_modified AS lastModified, content_hash AS contentHash " +
+            "FROM page WHERE site_id = :siteId", nativeQuery = true)
+    List<PageSnapshot> findSnapshotsBySiteId(@Param("siteId") int siteId);
+
+    /**
+     * Для выдачи поиска: сжатое содержимое страницы не читается и не распаковывается.
+     */
+    @Query(value = "SELECT id, site_id AS siteId, path, title, text FROM page WHERE id IN :ids", nativeQuery = true)
+    List<PageSearchView> findSearchViewsByIdIn(@Param("ids") List<Integer> ids);
+
+    @Query("SELECT p.content FROM PageEntity p WHERE p.id = :id")
+    String findContentById(@Param("id") int id);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE page SET etag = :etag, last_modified = :lastModified WHERE id = :id", nativeQuery = true)
+    void updateValidators(@Param("id") int id,
+                          @Param("etag") String etag,
+                          @Param("lastModified") String lastModified);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM page WHERE id IN :ids", nativeQuery = true)
+    void deleteAllByIdIn(@Param("ids") List<Integer> ids);
+}
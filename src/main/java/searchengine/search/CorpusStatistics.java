@@ -0,0 +1,89 @@
+package searchengine.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.repositories.LemmaBatchRepository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Статистика корпуса для отсечения частых лемм: число проиндексированных страниц сайта
+ * и число страниц, на которых встречается каждая лемма (lemma.frequency).
+ * <p>
+ * Сайт загружается из БД при первом запросе и после завершения его индексации, а переиндексация
+ * отдельных страниц меняет счётчики на месте. Изменения выполняются под одной блокировкой,
+ * поэтому загрузка и применение разницы не учитывают одну страницу дважды.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CorpusStatistics {
+
+    private final LemmaBatchRepository lemmaBatchRepository;
+    private final Map<Integer, SiteStatistics> sites = new ConcurrentHashMap<>();
+
+    public int getDocumentCount(Collection<Integer> siteIds) {
+        return siteIds.stream().mapToInt(siteId -> statisticsOf(siteId).documentCount).sum();
+    }
+
+    public int getDocumentFrequency(String lemma, Collection<Integer> siteIds) {
+        return siteIds.stream()
+                .mapToInt(siteId -> statisticsOf(siteId).documentFrequency.getOrDefault(lemma, 0))
+                .sum();
+    }
+
+    public synchronized void reloadSite(int siteId) {
+        sites.put(siteId, load(siteId));
+    }
+
+    public synchronized void dropSite(int siteId) {
+        sites.remove(siteId);
+    }
+
+    /**
+     * Применяет переиндексацию страницы: documentDelta — изменение числа страниц с леммами (−1, 0 или 1).
+     */
+    public synchronized void updatePage(int siteId, Collection<String> removedLemmas,
+                                        Collection<String> addedLemmas, int documentDelta) {
+        SiteStatistics statistics = sites.get(siteId);
+        if (statistics == null) {
+            return;
+        }
+        removedLemmas.forEach(lemma -> statistics.documentFrequency
+                .computeIfPresent(lemma, (key, frequency) -> frequency > 1 ? frequency - 1 : null));
+        addedLemmas.forEach(lemma -> statistics.documentFrequency.merge(lemma, 1, Integer::sum));
+        statistics.documentCount += documentDelta;
+    }
+
+    private SiteStatistics statisticsOf(int siteId) {
+        SiteStatistics statistics = sites.get(siteId);
+        if (statistics != null) {
+            return statistics;
+        }
+        synchronized (this) {
+            return sites.computeIfAbsent(siteId, this::load);
+        }
+    }
+
+    private SiteStatistics load(int siteId) {
+        SiteStatistics statistics = new SiteStatistics(
+                lemmaBatchRepository.countIndexedPages(siteId),
+                lemmaBatchRepository.findFrequencies(siteId));
+        log.info("Статистика корпуса сайта {} загружена: страниц {}, лемм {}",
+                siteId, statistics.documentCount, statistics.documentFrequency.size());
+        return statistics;
+    }
+
+    private static class SiteStatistics {
+        private volatile int documentCount;
+        private final Map<String, Integer> documentFrequency;
+
+        private SiteStatistics(int documentCount, Map<String, Integer> documentFrequency) {
+            this.documentCount = documentCount;
+            this.documentFrequency = new ConcurrentHashMap<>(documentFrequency);
+        }
+    }
+}
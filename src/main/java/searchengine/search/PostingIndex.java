@@ -0,0 +1,213 @@
+package searchengine.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.model.IndexRow;
+import searchengine.model.PageScores;
+import searchengine.model.SiteEntity;
+import searchengine.model.Status;
+import searchengine.repositories.LemmaBatchRepository;
+import searchengine.repositories.SiteRepository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Обратный индекс проиндексированных сайтов в памяти: id леммы → сжатый список постингов.
+ * <p>
+ * Сайт загружается из search_index целиком после завершения его индексации и при старте приложения,
+ * а удаляется из памяти, как только его снова начинают индексировать. Переиндексация отдельных
+ * страниц применяется к загруженному сайту после фиксации транзакции. Пока сайта нет в памяти,
+ * {@link #intersect} возвращает пустой результат и поиск идёт через БД.
+ * <p>
+ * Каждое изменение индекса сайта, в том числе выполненное только в БД, увеличивает поколение сайта
+ * после того, как изменение стало видимым; по поколениям проверяет свои записи {@link SearchResultCache}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PostingIndex {
+
+    private final LemmaBatchRepository lemmaBatchRepository;
+    private final SiteRepository siteRepository;
+    private final SearchSettings settings;
+    private final Map<Integer, Map<Integer, PostingList>> sites = new ConcurrentHashMap<>();
+    private final Map<Integer, Object> siteLocks = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndexedSites() {
+        if (!settings.isPostingIndexEnabled()) {
+            return;
+        }
+        Thread loader = new Thread(() -> siteRepository.findAllByStatus(Status.INDEXED).stream()
+                .map(SiteEntity::getId)
+                .forEach(this::reloadSite), "posting-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isLoaded(int siteId) {
+        return sites.containsKey(siteId);
+    }
+
+    public long getGeneration(int siteId) {
+        AtomicLong generation = generations.get(siteId);
+        return generation != null ? generation.get() : 0;
+    }
+
+    public void reloadSite(int siteId) {
+        if (!settings.isPostingIndexEnabled()) {
+            nextGeneration(siteId);
+            return;
+        }
+        synchronized (lockFor(siteId)) {
+            try {
+                SiteLoader loader = new SiteLoader();
+                lemmaBatchRepository.forEachSitePosting(siteId, loader);
+                Map<Integer, PostingList> postings = loader.finish();
+                sites.put(siteId, postings);
+                log.info("Индекс постингов сайта {} загружен: лемм {}, постингов {}, {} КБ", siteId, postings.size(),
+                        postings.values().stream().mapToLong(PostingList::size).sum(),
+                        postings.values().stream().mapToLong(PostingList::sizeInBytes).sum() / 1024);
+            } catch (Exception e) {
+                sites.remove(siteId);
+                log.error("Не удалось загрузить индекс постингов сайта {}: {}", siteId, e.getMessage());
+            }
+            nextGeneration(siteId);
+        }
+    }
+
+    public void dropSite(int siteId) {
+        synchronized (lockFor(siteId)) {
+            sites.remove(siteId);
+            nextGeneration(siteId);
+        }
+    }
+
+    /**
+     * Применяет переиндексацию страницы: убирает её из списков исчезнувших лемм
+     * и задаёт rank в списках новых и изменившихся.
+     */
+    public void updatePage(int siteId, int pageId, Collection<Integer> removedLemmaIds, Collection<IndexRow> rows) {
+        synchronized (lockFor(siteId)) {
+            Map<Integer, PostingList> postings = sites.get(siteId);
+            if (postings == null) {
+                nextGeneration(siteId);
+                return;
+            }
+            removedLemmaIds.forEach(lemmaId -> postings.computeIfPresent(lemmaId, (id, list) -> {
+                PostingList updated = list.without(pageId);
+                return updated.size() == 0 ? null : updated;
+            }));
+            rows.forEach(row -> postings.merge(row.getLemmaId(), PostingList.EMPTY.with(pageId, row.getRank()),
+                    (list, added) -> list.with(pageId, row.getRank())));
+            nextGeneration(siteId);
+        }
+    }
+
+    /**
+     * Страницы сайта, содержащие все леммы, с суммой их rank. Списки пересекаются от самого короткого,
+     * поэтому промежуточный результат не превышает длины самого редкого списка.
+     */
+    public Optional<PageScores> intersect(int siteId, List<Integer> lemmaIds) {
+        Map<Integer, PostingList> postings = sites.get(siteId);
+        if (postings == null) {
+            return Optional.empty();
+        }
+        List<PostingList> lists = new ArrayList<>(lemmaIds.size());
+        for (Integer lemmaId : lemmaIds) {
+            lists.add(postings.getOrDefault(lemmaId, PostingList.EMPTY));
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        if (lists.isEmpty() || lists.get(0).size() == 0) {
+            return Optional.of(PageScores.EMPTY);
+        }
+
+        PostingList first = lists.get(0);
+        int[] pageIds = new int[first.size()];
+        float[] relevance = new float[first.size()];
+        int count = 0;
+        PostingList.Cursor firstCursor = first.cursor();
+        while (firstCursor.next()) {
+            pageIds[count] = firstCursor.pageId();
+            relevance[count] = firstCursor.rank();
+            count++;
+        }
+
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            PostingList.Cursor cursor = lists.get(l).cursor();
+            int kept = 0;
+            int i = 0;
+            boolean hasNext = cursor.next();
+            while (i < count && hasNext) {
+                if (pageIds[i] < cursor.pageId()) {
+                    i++;
+                } else if (pageIds[i] > cursor.pageId()) {
+                    hasNext = cursor.next();
+                } else {
+                    pageIds[kept] = pageIds[i];
+                    relevance[kept] = relevance[i] + cursor.rank();
+                    kept++;
+                    i++;
+                    hasNext = cursor.next();
+                }
+            }
+            count = kept;
+        }
+        return Optional.of(new PageScores(Arrays.copyOf(pageIds, count), Arrays.copyOf(relevance, count)));
+    }
+
+    private void nextGeneration(int siteId) {
+        generations.computeIfAbsent(siteId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    private Object lockFor(int siteId) {
+        return siteLocks.computeIfAbsent(siteId, id -> new Object());
+    }
+
+    /**
+     * Собирает списки из строк search_index, упорядоченных по (lemma_id, page_id).
+     */
+    private static class SiteLoader implements RowCallbackHandler {
+        private final Map<Integer, PostingList> postings = new ConcurrentHashMap<>();
+        private PostingList.Builder builder = new PostingList.Builder();
+        private int lemmaId = -1;
+
+        @Override
+        public void processRow(ResultSet resultSet) throws SQLException {
+            int rowLemmaId = resultSet.getInt("lemma_id");
+            if (rowLemmaId != lemmaId) {
+                flush();
+                lemmaId = rowLemmaId;
+            }
+            builder.add(resultSet.getInt("page_id"), resultSet.getFloat("rank"));
+        }
+
+        private Map<Integer, PostingList> finish() {
+            flush();
+            return postings;
+        }
+
+        private void flush() {
+            if (builder.size() > 0) {
+                postings.put(lemmaId, builder.build());
+                builder = new PostingList.Builder();
+            }
+        }
+    }
+}
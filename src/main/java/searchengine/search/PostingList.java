@@ -0,0 +1,143 @@
+package searchengine.search;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Неизменяемый список постингов одной леммы: id страниц по возрастанию и их rank.
+ * Хранится как поток varint: разность с предыдущим id страницы, затем rank.
+ * Rank — число вхождений леммы на странице, поэтому хранится целым.
+ */
+public final class PostingList {
+
+    public static final PostingList EMPTY = new PostingList(new byte[0], 0);
+
+    private final byte[] data;
+    private final int size;
+
+    private PostingList(byte[] data, int size) {
+        this.data = data;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int sizeInBytes() {
+        return data.length;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Копия списка, в которой у страницы pageId задан rank; страница добавляется, если её не было.
+     */
+    public PostingList with(int pageId, float rank) {
+        Builder builder = new Builder();
+        boolean added = false;
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            if (!added && cursor.pageId() >= pageId) {
+                builder.add(pageId, rank);
+                added = true;
+                if (cursor.pageId() == pageId) {
+                    continue;
+                }
+            }
+            builder.add(cursor.pageId(), cursor.rank());
+        }
+        if (!added) {
+            builder.add(pageId, rank);
+        }
+        return builder.build();
+    }
+
+    public PostingList without(int pageId) {
+        Builder builder = new Builder();
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            if (cursor.pageId() != pageId) {
+                builder.add(cursor.pageId(), cursor.rank());
+            }
+        }
+        return builder.size == size ? this : builder.build();
+    }
+
+    /**
+     * Последовательное чтение списка без распаковки в массивы.
+     */
+    public final class Cursor {
+        private int position;
+        private int pageId;
+        private int rank;
+
+        private Cursor() {
+        }
+
+        public boolean next() {
+            if (position >= data.length) {
+                return false;
+            }
+            pageId += readVarInt();
+            rank = readVarInt();
+            return true;
+        }
+
+        public int pageId() {
+            return pageId;
+        }
+
+        public float rank() {
+            return rank;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Собирает список из постингов, добавляемых по возрастанию id страницы.
+     */
+    public static final class Builder {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int previousPageId;
+        private int size;
+
+        public void add(int pageId, float rank) {
+            if (size > 0 && pageId <= previousPageId) {
+                throw new IllegalArgumentException("Постинги должны идти по возрастанию id страницы");
+            }
+            writeVarInt(pageId - previousPageId);
+            writeVarInt(Math.max(0, Math.round(rank)));
+            previousPageId = pageId;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PostingList build() {
+            return size == 0 ? EMPTY : new PostingList(out.toByteArray(), size);
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+    }
+}
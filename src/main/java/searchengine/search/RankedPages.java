@@ -0,0 +1,35 @@
+package searchengine.search;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ранжированный результат запроса: первые страницы по убыванию релевантности,
+ * общее число найденных страниц и максимальная релевантность для нормировки.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RankedPages {
+    private final int[] pageIds;
+    private final float[] relevance;
+    private final int totalCount;
+    private final double maxRelevance;
+    private final List<String> lemmas;
+
+    public int size() {
+        return pageIds.length;
+    }
+
+    /**
+     * Достаточно ли ранжированных страниц, чтобы отдать первые depth результатов.
+     */
+    public boolean covers(int depth) {
+        return pageIds.length >= depth || pageIds.length == totalCount;
+    }
+
+    long estimatedBytes() {
+        return 64L + 8L * pageIds.length + lemmas.stream().mapToLong(lemma -> 48L + 2L * lemma.length()).sum();
+    }
+}
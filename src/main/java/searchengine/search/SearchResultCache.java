@@ -0,0 +1,92 @@
+package searchengine.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * LRU-кэш ранжированных результатов поиска с ограничением по памяти. Ключ — отсортированный набор лемм
+ * запроса и отсортированные id сайтов. Запись действительна, пока не изменились поколения индекса
+ * её сайтов ({@link PostingIndex#getGeneration}), поэтому индексация не обязана чистить кэш сама.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SearchResultCache {
+
+    private final PostingIndex postingIndex;
+    private final SearchSettings settings;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+
+    public RankedPages get(List<String> lemmas, List<Integer> siteIds, int depth, Supplier<RankedPages> loader) {
+        if (settings.getResultCacheMaxBytes() <= 0) {
+            return loader.get();
+        }
+
+        Key key = new Key(lemmas.stream().sorted().toList(), siteIds.stream().sorted().toList());
+        // Поколения снимаются до вычисления: изменение индекса во время поиска сделает запись устаревшей
+        long[] generations = generationsOf(key.getSiteIds());
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isValid(generations) && entry.getPages().covers(depth)) {
+                return entry.getPages();
+            }
+        }
+
+        RankedPages pages = loader.get();
+        put(key, new Entry(generations, pages));
+        return pages;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        long entryBytes = entry.getPages().estimatedBytes();
+        if (entryBytes > settings.getResultCacheMaxBytes()) {
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            usedBytes -= previous.getPages().estimatedBytes();
+        }
+        usedBytes += entryBytes;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (usedBytes > settings.getResultCacheMaxBytes() && eldest.hasNext()) {
+            usedBytes -= eldest.next().getPages().estimatedBytes();
+            eldest.remove();
+        }
+        log.debug("Кэш результатов поиска: записей {}, занято {} КБ", entries.size(), usedBytes / 1024);
+    }
+
+    private long[] generationsOf(List<Integer> siteIds) {
+        long[] generations = new long[siteIds.size()];
+        for (int i = 0; i < generations.length; i++) {
+            generations[i] = postingIndex.getGeneration(siteIds.get(i));
+        }
+        return generations;
+    }
+
+    @Value
+    private static class Key {
+        List<String> lemmas;
+        List<Integer> siteIds;
+    }
+
+    @Value
+    private static class Entry {
+        long[] generations;
+        RankedPages pages;
+
+        boolean isValid(long[] currentGenerations) {
+            return Arrays.equals(generations, currentGenerations);
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package searchengine.services;
 
 import searchengine.dto.responses.IndexingResponse;
+import searchengine.dto.statistics.PipelineStatistics;
+import searchengine.pipeline.IndexingMode;
 
 public interface IndexingService {
-    IndexingResponse startIndexing();
+    IndexingResponse startIndexing(IndexingMode mode);
     IndexingResponse stopIndexing();
     IndexingResponse indexPage(String url);
     boolean isStopping();
+    PipelineStatistics getPipelineStatistics();
 }
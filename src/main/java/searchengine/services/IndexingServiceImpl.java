@@ -1,129 +1,258 @@
 package searchengine.services;
 
 import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import searchengine.config.PipelineSettings;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
+import searchengine.config.WriterSettings;
 import searchengine.dto.responses.IndexingResponse;
-import searchengine.dto.responses.PageResponse;
+import searchengine.dto.statistics.PipelineStatistics;
 import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
 import searchengine.model.Status;
+import searchengine.parser.FetchedPage;
 import searchengine.parser.HtmlLinkParser;
-import searchengine.parser.WebPageNode;
-import searchengine.parser.WebPageRecursiveAction;
-import searchengine.repositories.IndexRepository;
+import searchengine.parser.SiteDiscovery;
+import searchengine.parser.UrlCanonicalizer;
+import searchengine.pipeline.BulkIndexBuilder;
+import searchengine.pipeline.IndexingMode;
+import searchengine.pipeline.IndexingPipeline;
+import searchengine.repositories.BulkIndexRepository;
+import searchengine.repositories.CrawlFrontierRepository;
 import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageBatchRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.search.CorpusStatistics;
+import searchengine.search.PostingIndex;
+import searchengine.util.ContentHash;
 import searchengine.util.Morphology;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Service
 public class IndexingServiceImpl implements IndexingService {
 
-    private ForkJoinPool forkJoinPool;
     private final SitesList sitesList;
     private final Morphology morphology;
     private final LemmaService lemmaService;
+    private final PageWriterService pageWriterService;
     private final HtmlLinkParser htmlLinkParser;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final SiteDiscovery siteDiscovery;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
-    private final IndexRepository indexRepository;
     private final LemmaRepository lemmaRepository;
+    private final CrawlFrontierRepository frontierRepository;
+    private final BulkIndexRepository bulkIndexRepository;
+    private final PageBatchRepository pageBatchRepository;
+    private final PostingIndex postingIndex;
+    private final CorpusStatistics corpusStatistics;
+    private final PipelineSettings pipelineSettings;
+    private final WriterSettings writerSettings;
     private volatile boolean isStopping = false;
+    private volatile boolean bulkBuildInProgress = false;
+    private volatile IndexingPipeline pipeline;
+    private volatile BulkIndexBuilder bulkIndexBuilder;
     private final ReentrantLock stopLock = new ReentrantLock();
-    private final ReentrantLock lemmaLock = new ReentrantLock();
-    private final ReentrantLock siteEntityLock = new ReentrantLock();
     private ExecutorService executorService = Executors.newSingleThreadExecutor();
 
     public IndexingServiceImpl(SitesList sitesList,
                                Morphology morphology,
                                LemmaService lemmaService,
+                               PageWriterService pageWriterService,
                                SiteRepository siteRepository,
                                PageRepository pageRepository,
-                               IndexRepository indexRepository,
                                LemmaRepository lemmaRepository,
-                               HtmlLinkParser htmlLinkParser) {
+                               CrawlFrontierRepository frontierRepository,
+                               BulkIndexRepository bulkIndexRepository,
+                               PageBatchRepository pageBatchRepository,
+                               PostingIndex postingIndex,
+                               CorpusStatistics corpusStatistics,
+                               HtmlLinkParser htmlLinkParser,
+                               UrlCanonicalizer urlCanonicalizer,
+                               SiteDiscovery siteDiscovery,
+                               PipelineSettings pipelineSettings,
+                               WriterSettings writerSettings) {
         this.sitesList = sitesList;
         this.morphology = morphology;
         this.lemmaService = lemmaService;
+        this.pageWriterService = pageWriterService;
         this.siteRepository = siteRepository;
         this.pageRepository = pageRepository;
-        this.indexRepository = indexRepository;
         this.lemmaRepository = lemmaRepository;
+        this.frontierRepository = frontierRepository;
+        this.bulkIndexRepository = bulkIndexRepository;
+        this.pageBatchRepository = pageBatchRepository;
+        this.postingIndex = postingIndex;
+        this.corpusStatistics = corpusStatistics;
         this.htmlLinkParser = htmlLinkParser;
+        this.urlCanonicalizer = urlCanonicalizer;
+        this.siteDiscovery = siteDiscovery;
+        this.pipelineSettings = pipelineSettings;
+        this.writerSettings = writerSettings;
+    }
 
-        int poolParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
-        this.forkJoinPool = new ForkJoinPool(poolParallelism);
-        log.info("Создан ForkJoinPool с количеством потоков: " + poolParallelism);
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterruptedSites() {
+        updateAllSitesStatus(Status.FAILED, "Индексация прервана перезапуском приложения");
     }
 
     @Override
-    public IndexingResponse startIndexing() {
+    public IndexingResponse startIndexing(IndexingMode mode) {
         if (isIndexingInProgress()) {
             return new IndexingResponse(false, "\"Индексация уже запущена\"");
         }
 
         isStopping = false;
+        bulkBuildInProgress = mode == IndexingMode.BULK;
 
         if (executorService.isShutdown() || executorService.isTerminated()) {
             executorService = Executors.newSingleThreadExecutor();
         }
 
-        if (forkJoinPool.isShutdown() || forkJoinPool.isTerminated()) {
-            int poolParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
-            forkJoinPool = new ForkJoinPool(poolParallelism);
-            log.info("Создан новый ForkJoinPool с количеством потоков: " + poolParallelism);
-        }
-
-        log.info("ExecutorService статус: завершен? {}. ForkJoinPool статус: завершен? {}",
-                executorService.isShutdown(), forkJoinPool.isShutdown());
+        pipeline = new IndexingPipeline(
+                htmlLinkParser,
+                urlCanonicalizer,
+                siteDiscovery,
+                morphology,
+                lemmaService,
+                pageWriterService,
+                pageRepository,
+                siteRepository,
+                frontierRepository,
+                pipelineSettings);
+        bulkIndexBuilder = mode == IndexingMode.BULK
+                ? new BulkIndexBuilder(bulkIndexRepository, pageBatchRepository, writerSettings.getBatchSize())
+                : null;
+        pipeline.setBulkIndexBuilder(bulkIndexBuilder);
 
-        executorService.submit(this::performAsyncIndexing);
+        executorService.submit(() -> performAsyncIndexing(mode));
 
         return new IndexingResponse(true);
     }
 
-    public void performAsyncIndexing() {
+    public void performAsyncIndexing(IndexingMode mode) {
+        IndexingPipeline currentPipeline = pipeline;
+        BulkIndexBuilder currentBulkBuilder = bulkIndexBuilder;
+        boolean published = false;
         try {
+            if (currentBulkBuilder != null) {
+                currentBulkBuilder.prepare(findExistingSiteIds());
+            }
+
+            currentPipeline.start();
             for (Site siteConfig : sitesList.getSites()) {
                 log.info("Запуск индексации для сайта: " + siteConfig.getUrl());
-
-                ConcurrentHashMap<String, Boolean> visitedLinksMap = new ConcurrentHashMap<>();
-                indexSite(siteConfig, visitedLinksMap);
+                indexSite(siteConfig, currentPipeline, mode);
             }
 
-            forkJoinPool.awaitQuiescence(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            currentPipeline.awaitCompletion();
+            currentPipeline.shutdown();
 
             if (!isStopping) {
+                if (currentBulkBuilder != null) {
+                    currentBulkBuilder.publish();
+                    published = true;
+                }
+                // После подмены таблиц изменились данные всех сайтов конфигурации, в том числе оставшихся INDEXED
+                List<Integer> rebuiltSiteIds = currentBulkBuilder != null
+                        ? findExistingSiteIds()
+                        : siteRepository.findAllByStatus(Status.INDEXING).stream().map(SiteEntity::getId).toList();
                 updateAllSitesStatus(Status.INDEXED, null);
+                rebuiltSiteIds.forEach(siteId -> {
+                    corpusStatistics.reloadSite(siteId);
+                    postingIndex.reloadSite(siteId);
+                });
             } else {
                 log.info("Индексация была остановлена пользователем, не устанавливаем статус INDEXED");
             }
 
-        } catch (Exception e) {
+        } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            log.error("Ошибка при завершении ForkJoinPool", e);
+            log.error("Ожидание завершения конвейера индексации прервано", e);
+        } catch (Exception e) {
+            log.error("Ошибка при индексации сайтов", e);
+        } finally {
+            if (currentBulkBuilder != null && !published) {
+                currentBulkBuilder.discard();
+            }
+            bulkBuildInProgress = false;
         }
     }
 
+    private List<Integer> findExistingSiteIds() {
+        return sitesList.getSites().stream()
+                .map(siteConfig -> siteRepository.findByUrl(siteConfig.getUrl()))
+                .flatMap(Optional::stream)
+                .map(SiteEntity::getId)
+                .toList();
+    }
+
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    void indexSite(Site siteConfig, ConcurrentHashMap<String, Boolean> visitedLinksMap) {
+    void indexSite(Site siteConfig, IndexingPipeline currentPipeline, IndexingMode mode) {
         SiteEntity siteEntity = new SiteEntity();
         try {
+            Optional<SiteEntity> existingSite = mode != IndexingMode.FULL
+                    ? siteRepository.findByUrl(siteConfig.getUrl())
+                    : Optional.empty();
+
+            if (mode == IndexingMode.RESUME && existingSite.isPresent()) {
+                if (frontierRepository.existsBySiteId(existingSite.get().getId())) {
+                    siteEntity = resumeSiteEntity(existingSite.get());
+                    currentPipeline.resumeSite(siteEntity, siteConfig.getUrl(),
+                            frontierRepository.isIncrementalCrawl(siteEntity.getId()),
+                            pageRepository.findSnapshotsBySiteId(siteEntity.getId()),
+                            frontierRepository.findBySiteId(siteEntity.getId()));
+                    return;
+                }
+                if (existingSite.get().getStatus() == Status.INDEXED) {
+                    log.info("Сайт {} уже проиндексирован, продолжать нечего", siteConfig.getUrl());
+                    return;
+                }
+            }
+
+            if (mode == IndexingMode.BULK) {
+                // Проиндексированный сайт остаётся INDEXED, и поиск работает по живым таблицам
+                // и индексу в памяти до подмены таблиц
+                if (existingSite.isPresent() && existingSite.get().getStatus() == Status.INDEXED) {
+                    siteEntity = existingSite.get();
+                } else {
+                    siteEntity = existingSite.isPresent()
+                            ? resumeSiteEntity(existingSite.get())
+                            : initializeSiteEntity(siteConfig, Status.INDEXING);
+                }
+                frontierRepository.deleteBySiteId(siteEntity.getId());
+                currentPipeline.addSite(siteEntity, siteConfig.getUrl());
+                return;
+            }
+
+            if (mode == IndexingMode.INCREMENTAL && existingSite.isPresent()) {
+                siteEntity = resumeSiteEntity(existingSite.get());
+                // Строки DONE прошлого запуска не должны пропускать ссылки при продолжении этого
+                frontierRepository.deleteBySiteId(siteEntity.getId());
+                currentPipeline.addSite(siteEntity, siteConfig.getUrl(),
+                        pageRepository.findSnapshotsBySiteId(siteEntity.getId()));
+                return;
+            }
 
             clearOldSiteData(siteConfig);
             siteEntity = initializeSiteEntity(siteConfig, Status.INDEXING);
-            startSiteIndexing(siteConfig, siteEntity, visitedLinksMap);
+            currentPipeline.addSite(siteEntity, siteConfig.getUrl());
 
         } catch (Exception e) {
             String levelMessage = "Ошибка на уровне индексации сайта: ";
@@ -133,6 +262,10 @@ public class IndexingServiceImpl implements IndexingService {
     }
 
     private void clearOldSiteData(Site siteConfig) {
+        siteRepository.findByUrl(siteConfig.getUrl()).ifPresent(site -> {
+            corpusStatistics.dropSite(site.getId());
+            postingIndex.dropSite(site.getId());
+        });
         siteRepository.deleteSiteByUrl(siteConfig.getUrl());
     }
 
@@ -146,23 +279,16 @@ public class IndexingServiceImpl implements IndexingService {
         return newSiteEntity;
     }
 
-    void startSiteIndexing(Site siteConfig, SiteEntity siteEntity,
-                           ConcurrentHashMap<String, Boolean> visitedLinksMap) {
-        WebPageNode rootNode = new WebPageNode(siteConfig.getUrl());
-        forkJoinPool.submit(new WebPageRecursiveAction(
-                siteEntity,
-                morphology,
-                rootNode,
-                lemmaLock,
-                siteEntityLock,
-                lemmaService,
-                pageRepository,
-                siteRepository,
-                htmlLinkParser,
-                this,
-                visitedLinksMap));
+    private SiteEntity resumeSiteEntity(SiteEntity siteEntity) {
+        // Сайт в статусе INDEXING не участвует в поиске, его постинги и статистика в памяти устаревают
+        corpusStatistics.dropSite(siteEntity.getId());
+        postingIndex.dropSite(siteEntity.getId());
+        siteEntity.setStatus(Status.INDEXING);
+        siteEntity.setLastError(null);
+        siteEntity.setStatusTime(LocalDateTime.now());
+        return siteRepository.save(siteEntity);
     }
-    
+
     @Override
     public IndexingResponse stopIndexing() {
         stopLock.lock();
@@ -173,12 +299,9 @@ public class IndexingServiceImpl implements IndexingService {
 
             isStopping = true;
             log.info("Запрос на завершение всех задач...");
-            waitForTaskCompetition();
-
-            forkJoinPool.shutdown();
-            if (!forkJoinPool.awaitQuiescence(3, TimeUnit.MINUTES)) {
-                log.warn("ForkJoinPool не завершил свою работу за 3 минуты, принудительная остановка.");
-                forkJoinPool.shutdownNow();
+            IndexingPipeline currentPipeline = pipeline;
+            if (currentPipeline != null) {
+                currentPipeline.shutdown();
             }
 
             executorService.shutdown();
@@ -187,8 +310,6 @@ public class IndexingServiceImpl implements IndexingService {
                 executorService.shutdownNow();
             }
 
-            forkJoinPool.shutdownNow();
-            executorService.shutdownNow();
             updateAllSitesStatus(Status.FAILED, "Индексация остановлена пользователем");
             return new IndexingResponse(true);
         } catch (InterruptedException e) {
@@ -200,6 +321,14 @@ public class IndexingServiceImpl implements IndexingService {
         }
     }
 
+    @Override
+    public PipelineStatistics getPipelineStatistics() {
+        IndexingPipeline currentPipeline = pipeline;
+        return currentPipeline != null
+                ? currentPipeline.getStatistics()
+                : new PipelineStatistics(false, List.of(), morphology.getCacheStatistics());
+    }
+
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     void updateAllSitesStatus(Status status, String lastError) {
         List<SiteEntity> indexingSites = siteRepository.findAllByStatus(Status.INDEXING);
@@ -222,19 +351,31 @@ public class IndexingServiceImpl implements IndexingService {
                     "Данная страница находится за пределами сайтов, указанных в конфигурационном файле");
         }
 
+        Optional<String> canonicalUrl = urlCanonicalizer.canonicalize(url, optionalSite.get().getUrl());
+        if (canonicalUrl.isEmpty()) {
+            return new IndexingResponse(false,
+                    "Данная страница находится за пределами сайтов, указанных в конфигурационном файле");
+        }
+
         SiteEntity siteEntity = getOrInitializeSiteEntity(optionalSite.get());
 
         try {
-            cleanUpExistingPage(url, siteEntity);
-
-            PageResponse pageResponse = htmlLinkParser.getPageResponse(url);
-            int code = pageResponse.getStatusCode();
+            String path = urlCanonicalizer.relativePath(canonicalUrl.get());
+            PageEntity pageEntity = pageRepository.findByPathAndSiteEntity(path, siteEntity)
+                    .orElseGet(() -> createPageEntity(siteEntity, path, "", 0));
+
+            FetchedPage fetchedPage = htmlLinkParser.fetch(canonicalUrl.get()).join();
+            if (fetchedPage.isSkipped()) {
+                log.warn("Пропускаем URL {}: {}", fetchedPage.getUrl(), fetchedPage.getSkipReason());
+                return saveErrorPage(pageEntity, 400, fetchedPage);
+            }
 
+            int code = fetchedPage.getStatusCode();
             if (code != 200) {
-                return saveErrorPage(siteEntity, url, code);
+                return saveErrorPage(pageEntity, code, fetchedPage);
             }
 
-            savePageAndProcessLemmas(url, siteEntity, pageResponse);
+            savePageAndProcessLemmas(pageEntity, fetchedPage);
 
             return new IndexingResponse(true);
         } catch (Exception e) {
@@ -253,23 +394,26 @@ public class IndexingServiceImpl implements IndexingService {
                 });
     }
 
-    private void cleanUpExistingPage(String url, SiteEntity siteEntity) {
-        Optional<PageEntity> existingPage = pageRepository.findByPathAndSiteEntity(url, siteEntity);
-        existingPage.ifPresent(page -> {
-            indexRepository.decrementLemmaFrequencyByPage(page.getId());
-            pageRepository.delete(page);
-            lemmaRepository.deleteUnusedLemmas();
-        });
-    }
-
-    private void savePageAndProcessLemmas(String url, SiteEntity siteEntity, PageResponse pageResponse) {
-        String htmlContent = pageResponse.getContent();
-        String cleanedText = morphology.cleanHtmlTags(htmlContent);
-
-        PageEntity newPageEntity = createPageEntity(siteEntity, url, htmlContent, pageResponse.getStatusCode());
-        pageRepository.save(newPageEntity);
-
-        lemmaService.processTextAndSaveLemmas(cleanedText, newPageEntity);
+    /**
+     * Существующая страница обновляется на месте, а её леммы — по разнице со старым набором,
+     * поэтому время переиндексации не зависит от размера индекса.
+     */
+    private void savePageAndProcessLemmas(PageEntity pageEntity, FetchedPage fetchedPage) {
+        Document doc = htmlLinkParser.parseDocument(fetchedPage);
+        String title = doc.title();
+        String text = doc.body() != null ? doc.body().text() : "";
+        String indexedText = title.isEmpty() ? text : title + " " + text;
+
+        pageEntity.setContent(doc.html());
+        pageEntity.setCode(fetchedPage.getStatusCode());
+        pageEntity.setTitle(title);
+        pageEntity.setText(text);
+        pageEntity.setContentHash(ContentHash.sha256(indexedText));
+        pageEntity.setEtag(fetchedPage.getEtag());
+        pageEntity.setLastModified(fetchedPage.getLastModified());
+        pageRepository.save(pageEntity);
+
+        lemmaService.updatePageLemmas(pageEntity, morphology.getLemmaList(indexedText));
     }
 
     private void updateSiteStatusInCatch(SiteEntity siteEntity, String message, Exception e) {
@@ -286,9 +430,16 @@ public class IndexingServiceImpl implements IndexingService {
                 .findFirst();
     }
 
-    private IndexingResponse saveErrorPage(SiteEntity siteEntity, String url, int code) {
-        PageEntity errorPageEntity = createPageEntity(siteEntity, url, "", code);
-        pageRepository.save(errorPageEntity);
+    private IndexingResponse saveErrorPage(PageEntity pageEntity, int code, FetchedPage fetchedPage) {
+        pageEntity.setContent("");
+        pageEntity.setCode(code);
+        pageEntity.setTitle(null);
+        pageEntity.setText(null);
+        pageEntity.setContentHash(null);
+        pageEntity.setEtag(fetchedPage.getEtag());
+        pageEntity.setLastModified(fetchedPage.getLastModified());
+        pageRepository.save(pageEntity);
+        lemmaService.updatePageLemmas(pageEntity, Map.of());
 
         return new IndexingResponse(false,
                 "Не удалось индексировать страницу, код ответа: " + code);
@@ -303,20 +454,9 @@ public class IndexingServiceImpl implements IndexingService {
         return pageEntity;
     }
 
-    private void waitForTaskCompetition() throws InterruptedException {
-        int retries = 0;
-        while (retries < 30) {
-            if (forkJoinPool.isQuiescent()) {
-                log.info("Все задачи в ForkJoinPool завершены");
-                break;
-            }
-            Thread.sleep(1000);
-            retries++;
-        }
-    }
-
     private boolean isIndexingInProgress() {
-        return siteRepository.existsByStatus(Status.INDEXING);
+        // В режиме bulk уже проиндексированные сайты остаются INDEXED до подмены таблиц
+        return bulkBuildInProgress || siteRepository.existsByStatus(Status.INDEXING);
     }
 
     public boolean isStopping() {
@@ -1,7 +1,15 @@
 package searchengine.services;
 
 import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
+
+import java.util.Map;
 
 public interface LemmaService {
-    void processTextAndSaveLemmas(String text, PageEntity page);
+    void saveLemmas(Map<PageEntity, Map<String, Integer>> lemmasByPage);
+    void removePageLemmas(Integer pageId);
+    void updatePageLemmas(PageEntity page, Map<String, Integer> lemmaFrequencyMap);
+    void deleteUnusedLemmas(SiteEntity siteEntity);
+    void openDictionary(SiteEntity siteEntity);
+    void closeDictionary(SiteEntity siteEntity);
 }
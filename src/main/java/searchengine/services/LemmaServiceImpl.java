@@ -3,64 +3,204 @@ package searchengine.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import searchengine.model.IndexEntity;
-import searchengine.model.LemmaEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import searchengine.config.WriterSettings;
+import searchengine.model.IndexRow;
 import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
 import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaBatchRepository;
 import searchengine.repositories.LemmaRepository;
-import searchengine.util.Morphology;
+import searchengine.search.CorpusStatistics;
+import searchengine.search.PostingIndex;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class LemmaServiceImpl implements LemmaService{
 
-    private final Morphology morphology;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
-    private final ConcurrentHashMap<String, ReentrantLock> lemmaLocks = new ConcurrentHashMap<>();
+    private final LemmaBatchRepository lemmaBatchRepository;
+    private final WriterSettings writerSettings;
+    private final PostingIndex postingIndex;
+    private final CorpusStatistics corpusStatistics;
+    /**
+     * Словари лемма → id сайтов, индексируемых в текущем запуске. Словарь открывается при старте
+     * обхода сайта и освобождается по его завершении, поэтому память не растёт от запуска к запуску.
+     */
+    private final Map<Integer, Map<String, Integer>> siteDictionaries = new ConcurrentHashMap<>();
 
+    /**
+     * Счётчики лемм всех страниц пакета складываются в памяти, затем для каждого сайта
+     * выполняются один пакетный upsert в lemma, один выбор id и одна пакетная вставка в search_index.
+     */
     @Override
-    public void processTextAndSaveLemmas(String text, PageEntity pageEntity) {
+    @Transactional
+    public void saveLemmas(Map<PageEntity, Map<String, Integer>> lemmasByPage) {
+        Map<Integer, Map<PageEntity, Map<String, Integer>>> pagesBySite = new LinkedHashMap<>();
+        lemmasByPage.forEach((page, lemmas) -> pagesBySite
+                .computeIfAbsent(page.getSiteEntity().getId(), siteId -> new LinkedHashMap<>())
+                .put(page, lemmas));
+        pagesBySite.forEach(this::saveSiteLemmas);
+    }
 
-        Map<String, Integer> lemmaFrequencyMap = morphology.getLemmaList(text);
+    @Override
+    public void removePageLemmas(Integer pageId) {
+        indexRepository.decrementLemmaFrequencyByPage(pageId);
+        indexRepository.deleteByPageId(pageId);
+    }
 
-        for (Map.Entry<String, Integer> entry : lemmaFrequencyMap.entrySet()) {
-            String lemmaText = entry.getKey();
-            Integer frequency = entry.getValue();
+    /**
+     * Переиндексация одной страницы по разнице между сохранёнными и новыми леммами:
+     * затрагиваются только исчезнувшие, появившиеся и изменившие rank леммы этого сайта.
+     */
+    @Override
+    @Transactional
+    public void updatePageLemmas(PageEntity page, Map<String, Integer> lemmaFrequencyMap) {
+        int siteId = page.getSiteEntity().getId();
+        Map<String, IndexRow> storedRows = lemmaBatchRepository.findPageIndexes(page.getId());
 
-            saveOrUpdateLemma(lemmaText, frequency, pageEntity);
+        List<String> removedLemmas = new ArrayList<>();
+        List<Integer> removedIds = new ArrayList<>();
+        List<IndexRow> changedRows = new ArrayList<>();
+        storedRows.forEach((lemma, row) -> {
+            Integer rank = lemmaFrequencyMap.get(lemma);
+            if (rank == null) {
+                removedLemmas.add(lemma);
+                removedIds.add(row.getLemmaId());
+            } else if (rank != row.getRank()) {
+                changedRows.add(new IndexRow(page.getId(), row.getLemmaId(), rank));
+            }
+        });
+        Map<String, Integer> addedLemmas = new TreeMap<>();
+        lemmaFrequencyMap.forEach((lemma, rank) -> {
+            if (!storedRows.containsKey(lemma)) {
+                addedLemmas.put(lemma, rank);
+            }
+        });
+
+        if (!removedIds.isEmpty()) {
+            // Удалённые строки lemma нельзя оставлять в словаре обхода, если он открыт
+            Map<String, Integer> dictionary = siteDictionaries.get(siteId);
+            if (dictionary != null) {
+                removedLemmas.forEach(dictionary::remove);
+            }
+            removedIds.sort(null);
+            lemmaBatchRepository.removePageIndexes(page.getId(), removedIds);
+        }
+        if (!changedRows.isEmpty()) {
+            lemmaBatchRepository.updateIndexRanks(changedRows, writerSettings.getBatchSize());
+        }
+        List<IndexRow> upsertedRows = new ArrayList<>(changedRows);
+        if (!addedLemmas.isEmpty()) {
+            upsertedRows.addAll(saveSiteLemmas(siteId, Map.of(page, addedLemmas)));
         }
+        List<String> newLemmas = new ArrayList<>(addedLemmas.keySet());
+        int documentDelta = (lemmaFrequencyMap.isEmpty() ? 0 : 1) - (storedRows.isEmpty() ? 0 : 1);
+        afterCommit(() -> {
+            corpusStatistics.updatePage(siteId, removedLemmas, newLemmas, documentDelta);
+            postingIndex.updatePage(siteId, page.getId(), removedIds, upsertedRows);
+        });
+        log.debug("Страница {}: лемм удалено {}, изменено {}, добавлено {}",
+                page.getPath(), removedIds.size(), changedRows.size(), addedLemmas.size());
     }
 
-    private void saveOrUpdateLemma(String lemmaText, Integer frequency, PageEntity pageEntity) {
-
-        ReentrantLock lock = lemmaLocks.computeIfAbsent(lemmaText, k -> new ReentrantLock());
-        lock.lock();
-        try {
-            LemmaEntity lemma = lemmaRepository.findByLemmaAndSiteEntity(lemmaText, pageEntity.getSiteEntity())
-                    .map(existingLemma -> {
-                        existingLemma.setFrequency(existingLemma.getFrequency() + 1);
-                        return existingLemma;
-                    })
-                    .orElseGet(() -> new LemmaEntity(pageEntity.getSiteEntity(), lemmaText, 1));
-
-            lemmaRepository.saveAndFlush(lemma);
-            saveIndex(lemma, pageEntity, frequency);
-        } finally {
-            lock.unlock();
+    @Override
+    public void deleteUnusedLemmas(SiteEntity siteEntity) {
+        lemmaRepository.deleteUnusedLemmasBySite(siteEntity.getId());
+        Map<String, Integer> dictionary = siteDictionaries.get(siteEntity.getId());
+        if (dictionary != null) {
+            dictionary.clear();
         }
     }
 
-    private void saveIndex(LemmaEntity lemmaEntity, PageEntity pageEntity, int frequency) {
-        IndexEntity index = new IndexEntity();
-        index.setLemmaEntity(lemmaEntity);
-        index.setPageEntity(pageEntity);
-        index.setRank(frequency);
-        indexRepository.save(index);
+    @Override
+    public void openDictionary(SiteEntity siteEntity) {
+        siteDictionaries.put(siteEntity.getId(), new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public void closeDictionary(SiteEntity siteEntity) {
+        siteDictionaries.remove(siteEntity.getId());
+    }
+
+    private List<IndexRow> saveSiteLemmas(int siteId, Map<PageEntity, Map<String, Integer>> lemmasByPage) {
+        // Упорядоченные ключи: параллельные записи блокируют строки lemma в одном порядке
+        Map<String, Integer> increments = new TreeMap<>();
+        lemmasByPage.values().forEach(lemmas -> lemmas.keySet()
+                .forEach(lemma -> increments.merge(lemma, 1, Integer::sum)));
+        if (increments.isEmpty()) {
+            return List.of();
+        }
+
+        lemmaBatchRepository.upsertFrequencies(siteId, increments, writerSettings.getBatchSize());
+        Map<String, Integer> lemmaIds = resolveIds(siteId, increments.keySet());
+
+        List<IndexRow> rows = new ArrayList<>();
+        lemmasByPage.forEach((page, lemmas) -> lemmas.forEach((lemma, rank) -> {
+            Integer lemmaId = lemmaIds.get(lemma);
+            if (lemmaId == null) {
+                log.warn("Не найден id леммы {} сайта {}", lemma, siteId);
+                return;
+            }
+            rows.add(new IndexRow(page.getId(), lemmaId, rank));
+        }));
+        lemmaBatchRepository.insertIndexes(rows, writerSettings.getBatchSize());
+        return rows;
+    }
+
+    /**
+     * Берёт id из словаря сайта и запрашивает в БД только новые леммы. Найденные id попадают
+     * в словарь после фиксации транзакции: при откате созданные строки lemma исчезают.
+     */
+    private Map<String, Integer> resolveIds(int siteId, Collection<String> lemmas) {
+        Map<String, Integer> dictionary = siteDictionaries.get(siteId);
+        if (dictionary == null) {
+            return lemmaBatchRepository.findIds(siteId, lemmas);
+        }
+
+        Map<String, Integer> lemmaIds = new HashMap<>(lemmas.size() * 2);
+        List<String> unknownLemmas = new ArrayList<>();
+        for (String lemma : lemmas) {
+            Integer lemmaId = dictionary.get(lemma);
+            if (lemmaId != null) {
+                lemmaIds.put(lemma, lemmaId);
+            } else {
+                unknownLemmas.add(lemma);
+            }
+        }
+        if (unknownLemmas.isEmpty()) {
+            return lemmaIds;
+        }
+
+        Map<String, Integer> foundIds = lemmaBatchRepository.findIds(siteId, unknownLemmas);
+        lemmaIds.putAll(foundIds);
+        afterCommit(() -> dictionary.putAll(foundIds));
+        return lemmaIds;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
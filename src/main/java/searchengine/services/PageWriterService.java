@@ -0,0 +1,10 @@
+package searchengine.services;
+
+import searchengine.model.PageEntity;
+
+import java.util.List;
+import java.util.Map;
+
+public interface PageWriterService {
+    void writePages(List<PageEntity> pages, Map<PageEntity, Map<String, Integer>> lemmasByPage);
+}
@@ -0,0 +1,57 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.WriterSettings;
+import searchengine.model.PageEntity;
+import searchengine.repositories.PageBatchRepository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запись страниц и их лемм пакетами JDBC. Каждые commit-interval страниц
+ * записываются в отдельной транзакции вместе со строками search_index.
+ */
+@Service
+@RequiredArgsConstructor
+public class PageWriterServiceImpl implements PageWriterService {
+
+    private final PageBatchRepository pageBatchRepository;
+    private final LemmaService lemmaService;
+    private final WriterSettings writerSettings;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Страницы с заполненным id заменяют ранее сохранённые: их старые строки search_index удаляются.
+     */
+    @Override
+    public void writePages(List<PageEntity> pages, Map<PageEntity, Map<String, Integer>> lemmasByPage) {
+        int commitInterval = Math.max(1, writerSettings.getCommitInterval());
+        for (int from = 0; from < pages.size(); from += commitInterval) {
+            List<PageEntity> chunk = pages.subList(from, Math.min(pages.size(), from + commitInterval));
+            transactionTemplate.executeWithoutResult(status -> writeChunk(chunk, lemmasByPage));
+        }
+    }
+
+    private void writeChunk(List<PageEntity> pages, Map<PageEntity, Map<String, Integer>> lemmasByPage) {
+        int batchSize = writerSettings.getBatchSize();
+        List<PageEntity> replacedPages = pages.stream().filter(page -> page.getId() != null).toList();
+        List<PageEntity> newPages = pages.stream().filter(page -> page.getId() == null).toList();
+
+        replacedPages.forEach(page -> lemmaService.removePageLemmas(page.getId()));
+        pageBatchRepository.updatePages(replacedPages, batchSize);
+        pageBatchRepository.insertPages(newPages, batchSize);
+
+        Map<PageEntity, Map<String, Integer>> chunkLemmas = new LinkedHashMap<>();
+        for (PageEntity page : pages) {
+            Map<String, Integer> lemmas = lemmasByPage.get(page);
+            if (lemmas != null) {
+                chunkLemmas.put(page, lemmas);
+            }
+        }
+        lemmaService.saveLemmas(chunkLemmas);
+    }
+}
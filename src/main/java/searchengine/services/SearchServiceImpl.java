@@ -1,26 +1,29 @@
 package searchengine.services;
 
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.http.converter.json.GsonBuilderUtils;
 import org.springframework.stereotype.Service;
 import org.w3c.dom.ls.LSOutput;
+import searchengine.config.SearchSettings;
 import searchengine.dto.responses.SearchResults;
 import searchengine.model.*;
-import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaBatchRepository;
 import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.search.CorpusStatistics;
+import searchengine.search.PostingIndex;
+import searchengine.search.RankedPages;
+import searchengine.search.SearchResultCache;
 import searchengine.util.CleanHtmlCode;
 import searchengine.util.Morphology;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.DoubleAccumulator;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
@@ -31,7 +34,11 @@ public class SearchServiceImpl implements SearchService {
     private final PageRepository pageRepository;
     private final SiteRepository siteRepository;
     private final LemmaRepository lemmaRepository;
-    private final IndexRepository indexRepository;
+    private final LemmaBatchRepository lemmaBatchRepository;
+    private final PostingIndex postingIndex;
+    private final CorpusStatistics corpusStatistics;
+    private final SearchResultCache searchResultCache;
+    private final SearchSettings searchSettings;
 
 
     @Override
@@ -55,20 +62,38 @@ public class SearchServiceImpl implements SearchService {
         }
 
         Map<String, Integer> lemmasFromQuery = morphology.getLemmaList(query);
-        Map<String, Integer> filteredLemmas = filterFrequentLemmas(lemmasFromQuery, sites);
+        List<Integer> siteIds = sites.stream().map(SiteEntity::getId).toList();
+        int depth = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
 
-        List<LemmaEntity> sortedLemmas = getSortedLemmas(filteredLemmas.keySet(), sites);
-        List<PageEntity> relevantPages = getRelevantPages(sortedLemmas);
+        // Листание и повторные запросы берут ранжированный список из кэша, загружаются только страницы среза
+        RankedPages rankedPages = searchResultCache.get(new ArrayList<>(lemmasFromQuery.keySet()), siteIds, depth,
+                () -> rankPages(lemmasFromQuery, sites, Math.max(depth, searchSettings.getResultCacheDepth())));
 
-        List<SearchResults.SearchStatistic> searchStatisticList = calculateRelevance(relevantPages, sortedLemmas);
-        searchStatisticList.sort(Comparator.comparingDouble(SearchResults.SearchStatistic::getRelevance).reversed());
+        List<SearchResults.SearchStatistic> paginatedResults =
+                mapRelevanceToSearchStatistics(rankedPages, offset, depth, rankedPages.getLemmas(), sites);
 
-        List<SearchResults.SearchStatistic> paginatedResults = searchStatisticList.stream()
-                .skip(offset)
-                .limit(limit)
-                .collect(Collectors.toList());
+        return new SearchResults(true, rankedPages.getTotalCount(), paginatedResults);
+    }
 
-        return new SearchResults(true, searchStatisticList.size(), paginatedResults);
+    /**
+     * Ранжирование идёт только по id и релевантности: сохраняются первые depth страниц.
+     */
+    private RankedPages rankPages(Map<String, Integer> lemmasFromQuery, List<SiteEntity> sites, int depth) {
+        Map<String, Integer> filteredLemmas = filterFrequentLemmas(lemmasFromQuery, sites);
+
+        List<LemmaEntity> sortedLemmas = getSortedLemmas(filteredLemmas.keySet(), sites);
+        List<PageScores> siteScores = getRelevantPages(sortedLemmas);
+        int totalCount = siteScores.stream().mapToInt(PageScores::size).sum();
+
+        List<ScoredPage> topPages = selectTopPages(siteScores, depth);
+        int[] pageIds = new int[topPages.size()];
+        float[] relevance = new float[topPages.size()];
+        for (int i = 0; i < topPages.size(); i++) {
+            pageIds[i] = topPages.get(i).getPageId();
+            relevance[i] = topPages.get(i).getRelevance();
+        }
+        List<String> lemmaTexts = sortedLemmas.stream().map(LemmaEntity::getLemma).distinct().toList();
+        return new RankedPages(pageIds, relevance, totalCount, maxRelevance(siteScores), lemmaTexts);
     }
 
     public Optional<SearchResults> validateSiteForSearch(Optional<String> siteUrl) {
@@ -84,18 +109,24 @@ public class SearchServiceImpl implements SearchService {
         return Optional.empty();
     }
 
+    /**
+     * Отбрасывает леммы, встречающиеся более чем на 80% страниц выбранных сайтов.
+     * Число страниц и частоты лемм берутся из {@link CorpusStatistics} без обращения к БД.
+     */
     private Map<String, Integer> filterFrequentLemmas(Map<String, Integer> lemmasFromQuery, List<SiteEntity> sites) {
-        int totalPages = sites.stream().mapToInt(pageRepository::countBySiteEntity).sum();
+        List<Integer> siteIds = sites.stream().map(SiteEntity::getId).toList();
+        int totalPages = corpusStatistics.getDocumentCount(siteIds);
         double filterThreshold = 0.8;
         log.info("Общее количество страниц для всех выбранных сайтов (totalPages): " + totalPages);
 
-        Map<String, Integer> filteredLemmas = lemmasFromQuery.entrySet().parallelStream()
-                .filter(entry -> {
-                String lemma = entry.getKey();
-                int frequency = lemmaRepository.countByLemmaAndSites(lemma, sites);
-                return frequency < (filterThreshold * totalPages);
-            })
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        Map<String, Integer> filteredLemmas = lemmasFromQuery.entrySet().stream()
+                .filter(entry -> corpusStatistics.getDocumentFrequency(entry.getKey(), siteIds) < filterThreshold * totalPages)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        // Запрос из одних частых слов ищется целиком, иначе он всегда оставался бы без результатов
+        if (filteredLemmas.isEmpty()) {
+            return lemmasFromQuery;
+        }
 
         log.info("Оставшиеся леммы после фильтрации: " + filteredLemmas.keySet());
         return filteredLemmas;
@@ -120,7 +151,11 @@ public class SearchServiceImpl implements SearchService {
                 .collect(Collectors.toList());
     }
 
-    private List<PageEntity> getRelevantPages(List<LemmaEntity> sortedLemmas) {
+    /**
+     * Страницы, содержащие все леммы запроса, с абсолютной релевантностью по каждому сайту. Сайты, загруженные
+     * в {@link PostingIndex}, обрабатываются в памяти, остальные — одним сгруппированным запросом к search_index.
+     */
+    private List<PageScores> getRelevantPages(List<LemmaEntity> sortedLemmas) {
         if (sortedLemmas.isEmpty()) {
             return new ArrayList<>();
         }
@@ -128,88 +163,106 @@ public class SearchServiceImpl implements SearchService {
         Map<Integer, List<LemmaEntity>> lemmasBySite = sortedLemmas.stream()
                 .collect(Collectors.groupingBy(lemma -> lemma.getSiteEntity().getId()));
 
-        Set<PageEntity> relevantPages = new HashSet<>();
-
+        List<PageScores> siteScores = new ArrayList<>();
         for (Map.Entry<Integer, List<LemmaEntity>> entry : lemmasBySite.entrySet()) {
-            List<LemmaEntity> siteLemmas = entry.getValue();
-
-            int firstLemmaId = siteLemmas.get(0).getId();
-            Set<Integer> pageIds = indexRepository.findPageEntityIdsByLemmaEntityId(firstLemmaId);
-
-            log.info("Количество страниц до пересечений для сайта с ID " + entry.getKey() + ": " + pageIds.size());
-
-            for (int i = 1; i < siteLemmas.size() && !pageIds.isEmpty(); i++) {
-                Integer nextLemmaId = siteLemmas.get(i).getId();
-                Set<Integer> nextPageIds = indexRepository.findPageEntityIdsByLemmaEntityId(nextLemmaId);
-                pageIds.retainAll(nextPageIds);
-            }
-
-            relevantPages.addAll(pageRepository.findAllById(pageIds));
+            List<Integer> siteLemmaIds = entry.getValue().stream().map(LemmaEntity::getId).toList();
+            siteScores.add(postingIndex.intersect(entry.getKey(), siteLemmaIds)
+                    .orElseGet(() -> lemmaBatchRepository.findPageScores(siteLemmaIds)));
         }
-        return new ArrayList<>(relevantPages);
+        return siteScores;
     }
 
-    private List<SearchResults.SearchStatistic> calculateRelevance(List<PageEntity> pages, List<LemmaEntity> lemmas) {
-        DoubleAccumulator maxRelevance = new DoubleAccumulator(Double::max, 0.0);
-        Map<PageEntity, Double> relevanceMap = new ConcurrentHashMap<>();
-        List<Integer> lemmaIds = lemmas.stream().map(LemmaEntity::getId).toList();
-
-        pages.forEach(page -> {
-            double relevance = calculatePageRelevance(page, lemmaIds);
-            relevanceMap.put(page, relevance);
-
-            maxRelevance.accumulate(relevance);
-        });
-
-        return mapRelevanceToSearchStatistics(relevanceMap, maxRelevance.get(), lemmas);
+    private double maxRelevance(List<PageScores> siteScores) {
+        double maxRelevance = 0;
+        for (PageScores scores : siteScores) {
+            for (float relevance : scores.getRelevance()) {
+                maxRelevance = Math.max(maxRelevance, relevance);
+            }
+        }
+        return maxRelevance;
     }
 
-    private double calculatePageRelevance(PageEntity page, List<Integer> lemmaIds) {
-        double relevance = 0;
-        Pageable pageable = PageRequest.of(0, 100);
-
-        Page<IndexEntity> pageResult;
-        do {
-            pageResult = indexRepository.findByPageIdAndLemmaIds(page.getId(), lemmaIds, pageable);
-
-            relevance += pageResult.stream()
-                    .mapToDouble(IndexEntity::getRank)
-                    .sum();
-
-            pageable = pageable.next();
-        } while (pageResult.hasNext());
-
-        return relevance;
+    /**
+     * Первые count страниц по убыванию релевантности. Куча ограничена count элементами,
+     * объект создаётся только для страницы, которая в неё попадает.
+     */
+    private List<ScoredPage> selectTopPages(List<PageScores> siteScores, int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<ScoredPage> ranking = Comparator.comparingDouble(ScoredPage::getRelevance)
+                .thenComparing(ScoredPage::getPageId, Comparator.reverseOrder());
+        PriorityQueue<ScoredPage> heap = new PriorityQueue<>(Math.min(count, 1024), ranking);
+        for (PageScores scores : siteScores) {
+            int[] pageIds = scores.getPageIds();
+            float[] relevance = scores.getRelevance();
+            for (int i = 0; i < pageIds.length; i++) {
+                if (heap.size() < count) {
+                    heap.add(new ScoredPage(pageIds[i], relevance[i]));
+                } else if (relevance[i] > heap.peek().getRelevance()) {
+                    heap.poll();
+                    heap.add(new ScoredPage(pageIds[i], relevance[i]));
+                }
+            }
+        }
+        List<ScoredPage> topPages = new ArrayList<>(heap);
+        topPages.sort(ranking.reversed());
+        return topPages;
     }
 
-    private List<SearchResults.SearchStatistic> mapRelevanceToSearchStatistics(Map<PageEntity, Double> relevanceMap, double maxRelevance, List<LemmaEntity> lemmas) {
-        return new ArrayList<>((relevanceMap.entrySet().parallelStream()
-                .map(entry -> {
-                    PageEntity pageEntity = entry.getKey();
-                    double relativeRelevance = maxRelevance > 0 ? entry.getValue() / maxRelevance : 0;
+    private List<SearchResults.SearchStatistic> mapRelevanceToSearchStatistics(RankedPages rankedPages, int from, int to,
+                                                                               List<String> lemmas, List<SiteEntity> sites) {
+        int[] rankedIds = rankedPages.getPageIds();
+        float[] rankedRelevance = rankedPages.getRelevance();
+        double maxRelevance = rankedPages.getMaxRelevance();
+        List<Integer> slice = IntStream.range(Math.min(from, rankedIds.length), Math.min(to, rankedIds.length))
+                .boxed()
+                .toList();
+        if (slice.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-                    String siteUrl = pageEntity.getSiteEntity().getUrl();
-                    String siteName = pageEntity.getSiteEntity().getName();
-                    String title = CleanHtmlCode.clear(pageEntity.getContent(), "title");
-                    String snippet = generateSnippet(pageEntity, lemmas);
+        Map<Integer, SiteEntity> sitesById = sites.stream()
+                .collect(Collectors.toMap(SiteEntity::getId, site -> site));
+        Map<Integer, PageSearchView> pagesById = pageRepository.findSearchViewsByIdIn(slice.stream().map(i -> rankedIds[i]).toList())
+                .stream()
+                .collect(Collectors.toMap(PageSearchView::getId, page -> page));
+
+        return slice.stream()
+                .filter(i -> pagesById.containsKey(rankedIds[i])
+                        && sitesById.containsKey(pagesById.get(rankedIds[i]).getSiteId()))
+                .map(i -> {
+                    PageSearchView page = pagesById.get(rankedIds[i]);
+                    SiteEntity siteEntity = sitesById.get(page.getSiteId());
+                    double relativeRelevance = maxRelevance > 0 ? rankedRelevance[i] / maxRelevance : 0;
+
+                    // Страницы, сохранённые до появления колонок title и text, разбираются из HTML
+                    String content = page.getTitle() == null || page.getText() == null
+                            ? pageRepository.findContentById(page.getId())
+                            : null;
+                    String title = page.getTitle() != null
+                            ? page.getTitle()
+                            : CleanHtmlCode.clear(content, "title");
+                    String text = page.getText() != null
+                            ? page.getText()
+                            : CleanHtmlCode.clear(content, "body");
 
                     return new SearchResults.SearchStatistic(
-                            siteUrl,
-                            siteName,
-                            pageEntity.getPath(),
+                            siteEntity.getUrl(),
+                            siteEntity.getName(),
+                            page.getPath(),
                             title,
-                            snippet,
+                            morphology.generateSnippet(text, lemmas),
                             relativeRelevance
                     );
                 })
-                .toList()));
+                .collect(Collectors.toList());
     }
 
-    private String generateSnippet(PageEntity pageEntity, List<LemmaEntity> lemmas) {
-        String content = pageEntity.getContent();
-        List<String> lemmaTexts = lemmas.stream().map(LemmaEntity::getLemma).toList();
-
-        return morphology.generateSnippet(content, lemmaTexts);
+    @Getter
+    @AllArgsConstructor
+    private static class ScoredPage {
+        private final int pageId;
+        private final float relevance;
     }
-
 }
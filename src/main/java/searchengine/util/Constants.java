@@ -1,6 +0,0 @@
-package searchengine.util;
-
-public class Constants {
-    public static final String RUSSIAN_WORD_REGEX = "[а-яА-Я]+";
-    public static final String ENGLISH_WORD_REGEX = "[a-zA-Z]+";
-}
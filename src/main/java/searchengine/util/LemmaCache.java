@@ -0,0 +1,91 @@
+package searchengine.util;
+
+import searchengine.dto.statistics.CacheStatistics;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Ограниченный кэш словоформа → леммы. Разбит на полосы, каждая из которых — LRU-список
+ * под собственной блокировкой, поэтому потоки лемматизации почти не конкурируют.
+ * Частотность слов подчиняется закону Ципфа, и даже небольшой кэш покрывает большинство токенов.
+ */
+public class LemmaCache {
+
+    private static final int STRIPES = 32;
+
+    private final String name;
+    private final int capacity;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public LemmaCache(String name, int capacity) {
+        this.name = name;
+        this.capacity = Math.max(0, capacity);
+        int stripeCapacity = (this.capacity + STRIPES - 1) / STRIPES;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+    }
+
+    public List<String> get(String wordForm, Function<String, List<String>> loader) {
+        if (capacity == 0) {
+            misses.increment();
+            return loader.apply(wordForm);
+        }
+
+        Stripe stripe = stripeFor(wordForm);
+        List<String> lemmas;
+        synchronized (stripe) {
+            lemmas = stripe.get(wordForm);
+        }
+        if (lemmas != null) {
+            hits.increment();
+            return lemmas;
+        }
+
+        misses.increment();
+        lemmas = List.copyOf(loader.apply(wordForm));
+        synchronized (stripe) {
+            stripe.put(wordForm, lemmas);
+        }
+        return lemmas;
+    }
+
+    public CacheStatistics getStatistics() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return new CacheStatistics(name, size, capacity, hitCount, missCount,
+                total == 0 ? 0 : (double) hitCount / total);
+    }
+
+    private Stripe stripeFor(String wordForm) {
+        int hash = wordForm.hashCode();
+        return stripes[((hash ^ (hash >>> 16)) & 0x7fffffff) % STRIPES];
+    }
+
+    private static class Stripe extends LinkedHashMap<String, List<String>> {
+        private final int maxSize;
+
+        private Stripe(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -1,18 +1,32 @@
 package searchengine.util;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
 import org.jsoup.Jsoup;
 import org.springframework.stereotype.Component;
+import searchengine.config.MorphologySettings;
+import searchengine.dto.statistics.CacheStatistics;
 
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+/**
+ * Лемматизация русского и английского текста.
+ * <p>
+ * Экземпляры RussianLuceneMorphology и EnglishLuceneMorphology общие для всех потоков. После загрузки
+ * словарей они только читаются: getNormalForms и getMorphInfo ищут по неизменяемым массивам правил
+ * и собирают результат в локальных списках, не меняя полей объекта. Экземпляры создаются
+ * в статическом инициализаторе, который JVM выполняет до первого обращения к классу из любого потока,
+ * поэтому вызывать методы этого класса параллельно безопасно.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class Morphology {
 
     private static RussianLuceneMorphology russianMorphology;
@@ -27,28 +41,105 @@ public class Morphology {
         }
     }
 
+    private static final int NO_SCRIPT = 0;
+    private static final int RUSSIAN_SCRIPT = 1;
+    private static final int ENGLISH_SCRIPT = 2;
+
+    private final LemmaCache russianCache;
+    private final LemmaCache englishCache;
+    private final ExecutorService lemmatizeExecutor;
+
+    public Morphology(MorphologySettings settings) {
+        this.russianCache = new LemmaCache("russian", settings.getRussianCacheSize());
+        this.englishCache = new LemmaCache("english", settings.getEnglishCacheSize());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.lemmatizeExecutor = Executors.newFixedThreadPool(Math.max(1, settings.getLemmatizeThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "morphology-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Лемматизирует тексты параллельно на собственном пуле потоков (lemmatize-threads).
+     * Результаты возвращаются в порядке текстов. Не вызывать из потоков этого пула.
+     */
+    public List<Map<String, Integer>> getLemmaLists(List<String> texts) {
+        List<CompletableFuture<Map<String, Integer>>> futures = texts.stream()
+                .map(text -> CompletableFuture.supplyAsync(() -> getLemmaList(text), lemmatizeExecutor))
+                .toList();
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lemmatizeExecutor.shutdownNow();
+    }
+
+    /**
+     * Разбирает текст за один проход: токен — непрерывная последовательность букв одного алфавита.
+     * Буквы приводятся к нижнему регистру (ё → е) в общем буфере, поэтому слова с прилипшей
+     * пунктуацией и смешанные последовательности вроде «Java-разработчик» тоже попадают в индекс.
+     */
     public Map<String, Integer> getLemmaList(String text) {
         Map<String, Integer> lemmaFrequencyMap = new HashMap<>();
-        String[] words = text.split("\\s+");
-
-        Arrays.stream(words).forEach(word ->
-        {
-            List<String> baseForms =  getLemmasForWord(word.toLowerCase());
-            baseForms.forEach(baseForm ->
-                    lemmaFrequencyMap.put(baseForm, lemmaFrequencyMap.getOrDefault(baseForm, 0) + 1));
-        });
+        char[] buffer = new char[32];
+        int length = 0;
+        int tokenScript = NO_SCRIPT;
+
+        for (int i = 0, textLength = text.length(); i <= textLength; i++) {
+            char c = i < textLength ? text.charAt(i) : ' ';
+            int script = scriptOf(c);
+            if (script != tokenScript && length > 0) {
+                countLemmas(tokenScript, new String(buffer, 0, length), lemmaFrequencyMap);
+                length = 0;
+            }
+            tokenScript = script;
+            if (script != NO_SCRIPT) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                }
+                buffer[length++] = toLowerCase(c);
+            }
+        }
         return lemmaFrequencyMap;
     }
 
-    private List<String> getLemmasForWord(String wordInLowerCase) {
-        List<String> lemmas = new ArrayList<>();
+    private void countLemmas(int script, String word, Map<String, Integer> lemmaFrequencyMap) {
+        List<String> baseForms = script == RUSSIAN_SCRIPT
+                ? russianCache.get(word, form ->
+                        new ArrayList<>(filterRussianServiceWords(russianMorphology.getNormalForms(form), russianMorphology)))
+                : englishCache.get(word, form ->
+                        new ArrayList<>(filterEnglishServiceWords(englishMorphology.getNormalForms(form), englishMorphology)));
+        for (String baseForm : baseForms) {
+            lemmaFrequencyMap.merge(baseForm, 1, Integer::sum);
+        }
+    }
+
+    private static int scriptOf(char c) {
+        if ((c >= 'а' && c <= 'я') || (c >= 'А' && c <= 'Я') || c == 'ё' || c == 'Ё') {
+            return RUSSIAN_SCRIPT;
+        }
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+            return ENGLISH_SCRIPT;
+        }
+        return NO_SCRIPT;
+    }
 
-        if (wordInLowerCase.matches(Constants.RUSSIAN_WORD_REGEX)) {
-            lemmas.addAll(filterRussianServiceWords(russianMorphology.getNormalForms(wordInLowerCase), russianMorphology));
-        } else if (wordInLowerCase.matches(Constants.ENGLISH_WORD_REGEX)) {
-            lemmas.addAll(filterEnglishServiceWords(englishMorphology.getNormalForms(wordInLowerCase), englishMorphology));
+    private static char toLowerCase(char c) {
+        if (c == 'ё' || c == 'Ё') {
+            return 'е';
+        }
+        if ((c >= 'А' && c <= 'Я') || (c >= 'A' && c <= 'Z')) {
+            return (char) (c + ('a' - 'A'));
         }
-        return lemmas;
+        return c;
+    }
+
+    public List<CacheStatistics> getCacheStatistics() {
+        return List.of(russianCache.getStatistics(), englishCache.getStatistics());
     }
 
     private Collection<String> filterRussianServiceWords(List<String> normalForms, RussianLuceneMorphology russianMorphology) {
@@ -70,10 +161,10 @@ public class Morphology {
     }
 
 
-    public String generateSnippet(String content, List<String> lemmaTexts) {
+    public String generateSnippet(String text, List<String> lemmaTexts) {
         int snippetLength = 1500;
 
-        String snippet = extractSnippet(content, lemmaTexts, snippetLength);
+        String snippet = extractSnippet(text, lemmaTexts, snippetLength);
 
         if (snippet.isEmpty()) {
             return "";
@@ -82,8 +173,7 @@ public class Morphology {
         return highlightSnippet(snippet, lemmaTexts);
     }
 
-    public String extractSnippet(String content, List<String> lemmaTexts, int snippetLength) {
-        String cleanContent = CleanHtmlCode.clear(content, "body");
+    public String extractSnippet(String cleanContent, List<String> lemmaTexts, int snippetLength) {
         String lowerContent = cleanContent.toLowerCase();
         List<String> lowerLemmaTexts = lemmaTexts.stream().map(String::toLowerCase).toList();
 
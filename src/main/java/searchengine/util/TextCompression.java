@@ -0,0 +1,84 @@
+package searchengine.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатие текста в формате MySQL COMPRESS(): 4 байта длины исходных данных (little-endian)
+ * и поток zlib. Совместимость с COMPRESS()/UNCOMPRESS() позволяет сжать существующие строки
+ * миграцией и читать содержимое из SQL.
+ */
+@UtilityClass
+public class TextCompression {
+
+    private static final int HEADER_LENGTH = 4;
+
+    public static byte[] compress(String text) {
+        if (text == null) {
+            return null;
+        }
+        byte[] source = text.getBytes(StandardCharsets.UTF_8);
+        if (source.length == 0) {
+            return new byte[0];
+        }
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(source);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(source.length / 4 + 64);
+            output.write(source.length);
+            output.write(source.length >>> 8);
+            output.write(source.length >>> 16);
+            output.write(source.length >>> 24);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                output.write(buffer, 0, length);
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decompress(byte[] compressed) {
+        if (compressed == null) {
+            return null;
+        }
+        if (compressed.length == 0) {
+            return "";
+        }
+
+        int length = (compressed[0] & 0xff)
+                | (compressed[1] & 0xff) << 8
+                | (compressed[2] & 0xff) << 16
+                | (compressed[3] & 0xff) << 24;
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed, HEADER_LENGTH, compressed.length - HEADER_LENGTH);
+            byte[] result = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int inflated = inflater.inflate(result, offset, length - offset);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += inflated;
+            }
+            if (offset != length) {
+                throw new IllegalStateException("Повреждённые сжатые данные: ожидалось " + length + " байт, получено " + offset);
+            }
+            return new String(result, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Повреждённые сжатые данные", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
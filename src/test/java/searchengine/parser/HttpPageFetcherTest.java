@@ -0,0 +1,108 @@
+package searchengine.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpPageFetcherTest {
+
+    private static final byte[] HTML = "<html><body>Привет, мир!</body></html>".repeat(50)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void decodesZlibDeflate() {
+        assertArrayEquals(HTML, HttpPageFetcher.decode(deflate(HTML, false), "deflate", 1 << 20));
+    }
+
+    @Test
+    void decodesRawDeflate() {
+        assertArrayEquals(HTML, HttpPageFetcher.decode(deflate(HTML, true), "Deflate", 1 << 20));
+    }
+
+    @Test
+    void decodedBodyOverLimitIsRejected() {
+        assertNull(HttpPageFetcher.decode(deflate(HTML, false), "deflate", HTML.length - 1));
+        assertNull(HttpPageFetcher.decode(deflate(HTML, true), "deflate", HTML.length - 1));
+    }
+
+    @Test
+    void identityBodyIsReturnedAsIs() {
+        assertSame(HTML, HttpPageFetcher.decode(HTML, "", 1 << 20));
+    }
+
+    @Test
+    void bodySubscriberKeepsBodyWithinLimit() {
+        RecordingSubscription subscription = new RecordingSubscription();
+        HttpPageFetcher.BoundedBodySubscriber subscriber = new HttpPageFetcher.BoundedBodySubscriber(10);
+
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(List.of(ByteBuffer.wrap(new byte[6])));
+        subscriber.onNext(List.of(ByteBuffer.wrap(new byte[4])));
+        subscriber.onComplete();
+
+        HttpPageFetcher.BoundedBody body = subscriber.getBody().toCompletableFuture().join();
+        assertEquals(10, body.bytes.length);
+        assertNull(body.skipReason);
+        assertEquals(3, subscription.requested);
+    }
+
+    @Test
+    void bodySubscriberCancelsAsSoonAsLimitIsExceeded() {
+        RecordingSubscription subscription = new RecordingSubscription();
+        HttpPageFetcher.BoundedBodySubscriber subscriber = new HttpPageFetcher.BoundedBodySubscriber(10);
+
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(List.of(ByteBuffer.wrap(new byte[6])));
+        subscriber.onNext(List.of(ByteBuffer.wrap(new byte[5])));
+        // Данные, пришедшие после отмены, не буферизуются
+        subscriber.onNext(List.of(ByteBuffer.wrap(new byte[1 << 20])));
+
+        assertTrue(subscription.cancelled);
+        assertEquals(2, subscription.requested);
+        HttpPageFetcher.BoundedBody body = subscriber.getBody().toCompletableFuture().join();
+        assertEquals(0, body.bytes.length);
+        assertEquals("размер больше 10", body.skipReason);
+    }
+
+    private static class RecordingSubscription implements Flow.Subscription {
+        private long requested;
+        private boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static byte[] deflate(byte[] source, boolean raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+        try {
+            deflater.setInput(source);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
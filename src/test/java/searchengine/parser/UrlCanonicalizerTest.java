@@ -0,0 +1,80 @@
+package searchengine.parser;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.CanonicalizationSettings;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UrlCanonicalizerTest {
+
+    private static final String SITE = "https://example.com";
+
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer(new CanonicalizationSettings());
+
+    @Test
+    void canonicalizeDropsFragmentAndTrackingAndSortsQuery() {
+        assertEquals(Optional.of("https://example.com/a/?a=1&b=2"),
+                canonicalizer.canonicalize("https://WWW.Example.com/a/?utm_source=x&b=2&gclid=y&a=1#top", SITE));
+    }
+
+    @Test
+    void canonicalizeRejectsLinksOutsideTheSite() {
+        assertTrue(canonicalizer.canonicalize("https://other.com/a", SITE).isEmpty());
+        assertTrue(canonicalizer.canonicalize("https://example.com:8080/a", SITE).isEmpty());
+        assertTrue(canonicalizer.canonicalize("ftp://example.com/a", SITE).isEmpty());
+        assertTrue(canonicalizer.canonicalize("mailto:info@example.com", SITE).isEmpty());
+        assertTrue(canonicalizer.canonicalize("https://example.com/blog/a", SITE + "/shop").isEmpty());
+    }
+
+    @Test
+    void canonicalizeKeepsIndexFileAndTrailingSlashInFetchedUrl() {
+        assertEquals(Optional.of("https://example.com/a/index.html"),
+                canonicalizer.canonicalize("https://example.com/a/index.html", SITE));
+        assertEquals(Optional.of("https://example.com/a/"),
+                canonicalizer.canonicalize("https://example.com/a/", SITE));
+    }
+
+    @Test
+    void dedupKeyIgnoresIndexFileAndTrailingSlash() {
+        String key = canonicalizer.dedupKey("https://example.com/a");
+
+        assertEquals(key, canonicalizer.dedupKey("https://example.com/a/"));
+        assertEquals(key, canonicalizer.dedupKey("https://example.com/a/index.html"));
+        assertEquals("https://example.com/a?x=1", canonicalizer.dedupKey("https://example.com/a/index.php?x=1"));
+        assertEquals("https://example.com/", canonicalizer.dedupKey("https://example.com/"));
+    }
+
+    @Test
+    void relativePathKeepsCanonicalQuery() {
+        assertEquals("/", canonicalizer.relativePath("https://example.com"));
+        assertEquals("/a/", canonicalizer.relativePath("https://example.com/a/"));
+        assertEquals("/list?page=2&sort=asc", canonicalizer.relativePath("https://example.com/list?page=2&sort=asc"));
+        assertNotEquals(canonicalizer.relativePath("https://example.com/list?page=1"),
+                canonicalizer.relativePath("https://example.com/list?page=2"));
+    }
+
+    @Test
+    void relativePathDecodesPath() {
+        assertEquals("/новости", canonicalizer.relativePath("https://example.com/%D0%BD%D0%BE%D0%B2%D0%BE%D1%81%D1%82%D0%B8"));
+    }
+
+    @Test
+    void pathKeyOfStoredPathMatchesDedupKeyOfUrl() {
+        for (String url : new String[]{
+                "https://example.com/",
+                "https://example.com/a/",
+                "https://example.com/a/index.html",
+                "https://example.com/list/?page=2"}) {
+            String canonical = canonicalizer.canonicalize(url, SITE).orElseThrow();
+            String storedPath = canonicalizer.relativePath(canonical);
+
+            assertEquals(canonicalizer.dedupKey(canonical), SITE + canonicalizer.pathKey(storedPath), url);
+        }
+        assertEquals("/", canonicalizer.pathKey("/"));
+        assertEquals("/a?x=1", canonicalizer.pathKey("/a/index.html?x=1"));
+    }
+}
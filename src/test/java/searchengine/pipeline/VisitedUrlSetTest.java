@@ -0,0 +1,41 @@
+package searchengine.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VisitedUrlSetTest {
+
+    @Test
+    void addHashReportsOnlyFirstVisit() {
+        VisitedUrlSet visited = new VisitedUrlSet(16);
+        long hash = VisitedUrlSet.hash("https://example.com/a");
+
+        assertTrue(visited.addHash(hash));
+        assertFalse(visited.addHash(hash));
+        assertTrue(visited.addHash(VisitedUrlSet.hash("https://example.com/b")));
+    }
+
+    @Test
+    void keepsAllHashesAfterGrowingPastExpectedSize() {
+        VisitedUrlSet visited = new VisitedUrlSet(16);
+        int urls = 100_000;
+
+        for (int i = 0; i < urls; i++) {
+            assertTrue(visited.addHash(VisitedUrlSet.hash("https://example.com/page/" + i)));
+        }
+        for (int i = 0; i < urls; i++) {
+            assertFalse(visited.addHash(VisitedUrlSet.hash("https://example.com/page/" + i)));
+        }
+    }
+
+    @Test
+    void hashIsStableAndNeverZero() {
+        assertEquals(VisitedUrlSet.hash("https://example.com/"), VisitedUrlSet.hash("https://example.com/"));
+        assertNotEquals(VisitedUrlSet.hash("https://example.com/a"), VisitedUrlSet.hash("https://example.com/b"));
+        assertNotEquals(0L, VisitedUrlSet.hash(""));
+    }
+}
@@ -0,0 +1,110 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import searchengine.config.SearchSettings;
+import searchengine.model.IndexRow;
+import searchengine.model.PageScores;
+import searchengine.repositories.LemmaBatchRepository;
+import searchengine.repositories.SiteRepository;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PostingIndexTest {
+
+    private static final int SITE_ID = 1;
+
+    @Mock
+    private LemmaBatchRepository lemmaBatchRepository;
+    @Mock
+    private SiteRepository siteRepository;
+
+    private PostingIndex postingIndex;
+
+    @BeforeEach
+    void setUp() {
+        postingIndex = new PostingIndex(lemmaBatchRepository, siteRepository, new SearchSettings());
+    }
+
+    @Test
+    void intersectSumsRanksOfPagesContainingAllLemmas() throws Exception {
+        // Строки search_index в порядке (lemma_id, page_id): lemma_id, page_id, rank
+        loadSite(new int[][]{
+                {10, 1, 1}, {10, 2, 2}, {10, 4, 1}, {10, 7, 3}, {10, 9, 1},
+                {20, 2, 5}, {20, 7, 1}, {20, 8, 2},
+                {30, 1, 1}, {30, 2, 1}, {30, 7, 1}, {30, 9, 4}});
+
+        PageScores scores = postingIndex.intersect(SITE_ID, List.of(10, 20, 30)).orElseThrow();
+
+        assertArrayEquals(new int[]{2, 7}, scores.getPageIds());
+        assertArrayEquals(new float[]{8, 5}, scores.getRelevance());
+    }
+
+    @Test
+    void intersectWithUnknownLemmaIsEmpty() throws Exception {
+        loadSite(new int[][]{{10, 1, 1}});
+
+        assertEquals(0, postingIndex.intersect(SITE_ID, List.of(10, 99)).orElseThrow().size());
+    }
+
+    @Test
+    void intersectOfSiteNotInMemoryFallsBackToDatabase() {
+        assertEquals(Optional.empty(), postingIndex.intersect(SITE_ID, List.of(10)));
+    }
+
+    @Test
+    void updatePageChangesPostingsAndGeneration() throws Exception {
+        loadSite(new int[][]{{10, 1, 1}, {10, 2, 1}, {20, 2, 1}});
+        long generation = postingIndex.getGeneration(SITE_ID);
+
+        postingIndex.updatePage(SITE_ID, 1, List.of(), List.of(new IndexRow(1, 20, 3)));
+        postingIndex.updatePage(SITE_ID, 2, List.of(10), List.of(new IndexRow(2, 20, 2)));
+
+        PageScores scores = postingIndex.intersect(SITE_ID, List.of(20)).orElseThrow();
+        assertArrayEquals(new int[]{1, 2}, scores.getPageIds());
+        assertArrayEquals(new float[]{3, 2}, scores.getRelevance());
+        assertArrayEquals(new int[]{1}, postingIndex.intersect(SITE_ID, List.of(10)).orElseThrow().getPageIds());
+        assertEquals(generation + 2, postingIndex.getGeneration(SITE_ID));
+    }
+
+    @Test
+    void dropSiteRemovesItFromMemory() throws Exception {
+        loadSite(new int[][]{{10, 1, 1}});
+
+        postingIndex.dropSite(SITE_ID);
+
+        assertTrue(postingIndex.intersect(SITE_ID, List.of(10)).isEmpty());
+    }
+
+    private void loadSite(int[][] rows) throws Exception {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int[] row : rows) {
+                ResultSet resultSet = mock(ResultSet.class);
+                when(resultSet.getInt("lemma_id")).thenReturn(row[0]);
+                when(resultSet.getInt("page_id")).thenReturn(row[1]);
+                when(resultSet.getFloat("rank")).thenReturn((float) row[2]);
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(lemmaBatchRepository).forEachSitePosting(eq(SITE_ID), any());
+
+        postingIndex.reloadSite(SITE_ID);
+    }
+}
@@ -0,0 +1,86 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PostingListTest {
+
+    @Test
+    void varintRoundTripKeepsIdsAndRanks() {
+        int[] pageIds = {1, 127, 128, 16_511, 70_000, Integer.MAX_VALUE - 1};
+        int[] ranks = {1, 127, 128, 300_000, 0, 5};
+        PostingList.Builder builder = new PostingList.Builder();
+        for (int i = 0; i < pageIds.length; i++) {
+            builder.add(pageIds[i], ranks[i]);
+        }
+
+        PostingList list = builder.build();
+
+        assertEquals(pageIds.length, list.size());
+        assertEquals(List.of(
+                "1:1.0", "127:127.0", "128:128.0", "16511:300000.0", "70000:0.0", (Integer.MAX_VALUE - 1) + ":5.0"),
+                postings(list));
+    }
+
+    @Test
+    void gapsUpTo127TakeOneByte() {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.add(100, 1);
+        builder.add(101, 2);
+        builder.add(229, 3);
+
+        // Хранятся разности 100, 1 и 128; 128 уже не помещается в один байт varint
+        assertEquals(2 + 2 + 3, builder.build().sizeInBytes());
+    }
+
+    @Test
+    void rankIsRoundedToInteger() {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.add(1, 2.6f);
+        builder.add(2, -1f);
+
+        assertEquals(List.of("1:3.0", "2:0.0"), postings(builder.build()));
+    }
+
+    @Test
+    void builderRejectsUnorderedPageIds() {
+        PostingList.Builder builder = new PostingList.Builder();
+        builder.add(5, 1);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.add(5, 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(4, 1));
+    }
+
+    @Test
+    void withInsertsOrReplacesPosting() {
+        PostingList list = PostingList.EMPTY.with(20, 1).with(10, 2).with(30, 3);
+
+        assertEquals(List.of("10:2.0", "20:1.0", "30:3.0"), postings(list));
+        assertEquals(List.of("10:2.0", "20:7.0", "30:3.0"), postings(list.with(20, 7)));
+        assertEquals(List.of("10:2.0", "20:1.0", "30:3.0"), postings(list));
+    }
+
+    @Test
+    void withoutRemovesPosting() {
+        PostingList list = PostingList.EMPTY.with(10, 1).with(20, 2);
+
+        assertEquals(List.of("20:2.0"), postings(list.without(10)));
+        assertSame(list, list.without(15));
+        assertSame(PostingList.EMPTY, list.without(10).without(20));
+    }
+
+    private static List<String> postings(PostingList list) {
+        List<String> postings = new ArrayList<>();
+        PostingList.Cursor cursor = list.cursor();
+        while (cursor.next()) {
+            postings.add(cursor.pageId() + ":" + cursor.rank());
+        }
+        return postings;
+    }
+}
@@ -0,0 +1,111 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import searchengine.config.SearchSettings;
+import searchengine.repositories.LemmaBatchRepository;
+import searchengine.repositories.SiteRepository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@ExtendWith(MockitoExtension.class)
+class SearchResultCacheTest {
+
+    @Mock
+    private LemmaBatchRepository lemmaBatchRepository;
+    @Mock
+    private SiteRepository siteRepository;
+
+    private final SearchSettings settings = new SearchSettings();
+    private final AtomicInteger loads = new AtomicInteger();
+    private PostingIndex postingIndex;
+    private SearchResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        postingIndex = new PostingIndex(lemmaBatchRepository, siteRepository, settings);
+        cache = new SearchResultCache(postingIndex, settings);
+    }
+
+    @Test
+    void repeatedQueryIsServedFromCache() {
+        RankedPages first = cache.get(List.of("кот", "дом"), List.of(2, 1), 10, loader(3, 3));
+        RankedPages second = cache.get(List.of("дом", "кот"), List.of(1, 2), 10, loader(3, 3));
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void indexChangeOnQueriedSiteInvalidatesEntry() {
+        cache.get(List.of("кот"), List.of(1), 10, loader(3, 3));
+
+        postingIndex.dropSite(1);
+        cache.get(List.of("кот"), List.of(1), 10, loader(3, 3));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void indexChangeOnOtherSiteKeepsEntry() {
+        RankedPages first = cache.get(List.of("кот"), List.of(1), 10, loader(3, 3));
+
+        postingIndex.dropSite(2);
+
+        assertSame(first, cache.get(List.of("кот"), List.of(1), 10, loader(3, 3)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void deeperPageThanCachedIsRanked() {
+        cache.get(List.of("кот"), List.of(1), 2, loader(2, 10));
+        cache.get(List.of("кот"), List.of(1), 2, loader(2, 10));
+        assertEquals(1, loads.get());
+
+        cache.get(List.of("кот"), List.of(1), 5, loader(5, 10));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedOverByteLimit() {
+        RankedPages sample = new RankedPages(new int[1], new float[1], 1, 1, List.of("a"));
+        settings.setResultCacheMaxBytes(sample.estimatedBytes() * 2);
+
+        cache.get(List.of("a"), List.of(1), 1, loader(1, 1));
+        cache.get(List.of("b"), List.of(1), 1, loader(1, 1));
+        cache.get(List.of("a"), List.of(1), 1, loader(1, 1));
+        cache.get(List.of("c"), List.of(1), 1, loader(1, 1));
+        assertEquals(3, loads.get());
+
+        cache.get(List.of("a"), List.of(1), 1, loader(1, 1));
+        assertEquals(3, loads.get());
+        cache.get(List.of("b"), List.of(1), 1, loader(1, 1));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void disabledCacheAlwaysRanks() {
+        settings.setResultCacheMaxBytes(0);
+
+        cache.get(List.of("кот"), List.of(1), 10, loader(3, 3));
+        cache.get(List.of("кот"), List.of(1), 10, loader(3, 3));
+
+        assertEquals(2, loads.get());
+    }
+
+    private Supplier<RankedPages> loader(int rankedCount, int totalCount) {
+        return () -> {
+            loads.incrementAndGet();
+            return new RankedPages(new int[rankedCount], new float[rankedCount], totalCount, 1, List.of("a"));
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import searchengine.config.WriterSettings;
+import searchengine.model.IndexRow;
+import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaBatchRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.search.CorpusStatistics;
+import searchengine.search.PostingIndex;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LemmaServiceImplTest {
+
+    private static final int SITE_ID = 1;
+    private static final int PAGE_ID = 10;
+
+    @Mock
+    private LemmaRepository lemmaRepository;
+    @Mock
+    private IndexRepository indexRepository;
+    @Mock
+    private LemmaBatchRepository lemmaBatchRepository;
+    @Mock
+    private PostingIndex postingIndex;
+    @Mock
+    private CorpusStatistics corpusStatistics;
+
+    private final WriterSettings writerSettings = new WriterSettings();
+    private LemmaServiceImpl lemmaService;
+    private PageEntity page;
+
+    @BeforeEach
+    void setUp() {
+        lemmaService = new LemmaServiceImpl(lemmaRepository, indexRepository, lemmaBatchRepository,
+                writerSettings, postingIndex, corpusStatistics);
+
+        SiteEntity site = new SiteEntity();
+        site.setId(SITE_ID);
+        page = new PageEntity();
+        page.setId(PAGE_ID);
+        page.setSiteEntity(site);
+        page.setPath("/a");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void updatePageLemmasTouchesOnlyChangedLemmas() {
+        when(lemmaBatchRepository.findPageIndexes(PAGE_ID)).thenReturn(Map.of(
+                "кот", new IndexRow(PAGE_ID, 1, 2),
+                "дом", new IndexRow(PAGE_ID, 2, 1),
+                "сад", new IndexRow(PAGE_ID, 3, 5)));
+        when(lemmaBatchRepository.findIds(eq(SITE_ID), any())).thenReturn(Map.of("лес", 4));
+
+        lemmaService.updatePageLemmas(page, Map.of("кот", 2, "дом", 3, "лес", 1));
+
+        verify(lemmaBatchRepository).removePageIndexes(PAGE_ID, List.of(3));
+
+        ArgumentCaptor<List<IndexRow>> changed = ArgumentCaptor.forClass(List.class);
+        verify(lemmaBatchRepository).updateIndexRanks(changed.capture(), eq(writerSettings.getBatchSize()));
+        assertEquals(Map.of(2, 3f), ranksByLemmaId(changed.getValue()));
+
+        verify(lemmaBatchRepository).upsertFrequencies(SITE_ID, Map.of("лес", 1), writerSettings.getBatchSize());
+        ArgumentCaptor<List<IndexRow>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(lemmaBatchRepository).insertIndexes(inserted.capture(), eq(writerSettings.getBatchSize()));
+        assertEquals(Map.of(4, 1f), ranksByLemmaId(inserted.getValue()));
+
+        verify(corpusStatistics).updatePage(SITE_ID, List.of("сад"), List.of("лес"), 0);
+        ArgumentCaptor<Collection<IndexRow>> upserted = ArgumentCaptor.forClass(Collection.class);
+        verify(postingIndex).updatePage(eq(SITE_ID), eq(PAGE_ID), eq(List.of(3)), upserted.capture());
+        assertEquals(Map.of(2, 3f, 4, 1f), ranksByLemmaId(upserted.getValue()));
+    }
+
+    @Test
+    void updatePageLemmasWithSameLemmasWritesNothing() {
+        when(lemmaBatchRepository.findPageIndexes(PAGE_ID)).thenReturn(Map.of(
+                "кот", new IndexRow(PAGE_ID, 1, 2)));
+
+        lemmaService.updatePageLemmas(page, Map.of("кот", 2));
+
+        verify(lemmaBatchRepository, never()).removePageIndexes(anyInt(), any());
+        verify(lemmaBatchRepository, never()).updateIndexRanks(anyList(), anyInt());
+        verify(lemmaBatchRepository, never()).upsertFrequencies(anyInt(), any(), anyInt());
+        verify(lemmaBatchRepository, never()).insertIndexes(anyList(), anyInt());
+        verify(corpusStatistics).updatePage(SITE_ID, List.of(), List.of(), 0);
+    }
+
+    @Test
+    void newPageCountsAsDocumentAndEmptiedPageIsRemoved() {
+        when(lemmaBatchRepository.findPageIndexes(PAGE_ID)).thenReturn(Map.of());
+        when(lemmaBatchRepository.findIds(eq(SITE_ID), any())).thenReturn(Map.of("кот", 1));
+
+        lemmaService.updatePageLemmas(page, Map.of("кот", 1));
+
+        verify(corpusStatistics).updatePage(SITE_ID, List.of(), List.of("кот"), 1);
+
+        when(lemmaBatchRepository.findPageIndexes(PAGE_ID)).thenReturn(Map.of(
+                "кот", new IndexRow(PAGE_ID, 1, 1)));
+
+        lemmaService.updatePageLemmas(page, Map.of());
+
+        verify(lemmaBatchRepository).removePageIndexes(PAGE_ID, List.of(1));
+        verify(corpusStatistics).updatePage(SITE_ID, List.of("кот"), List.of(), -1);
+    }
+
+    private static Map<Integer, Float> ranksByLemmaId(Collection<IndexRow> rows) {
+        rows.forEach(row -> assertEquals(PAGE_ID, row.getPageId()));
+        return rows.stream().collect(Collectors.toMap(IndexRow::getLemmaId, IndexRow::getRank));
+    }
+}
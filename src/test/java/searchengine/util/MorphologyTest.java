@@ -0,0 +1,91 @@
+package searchengine.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import searchengine.config.MorphologySettings;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MorphologyTest {
+
+    private static final String SAMPLE_TEXT = "Поисковый движок обходит сайты и сохраняет страницы в базе данных\n"
+            + "Каждая страница разбирается на слова а слова приводятся к нормальной форме\n"
+            + "The search engine crawls pages and stores the text of every page\n"
+            + "ПОИСК работает по леммам\tпоэтому страницы и СТРАНИЦА находятся одинаково";
+
+    private final Morphology morphology = new Morphology(new MorphologySettings());
+
+    @AfterEach
+    void tearDown() {
+        morphology.shutdown();
+    }
+
+    @Test
+    void punctuationDoesNotDropWords() {
+        Map<String, Integer> lemmas = morphology.getLemmaList("кошка, кошка! (кошка) «кошка»...");
+
+        assertEquals(morphology.getLemmaList("кошка кошка кошка кошка"), lemmas);
+        assertEquals(4, lemmas.get("кошка"));
+    }
+
+    @Test
+    void caseAndYoAreFolded() {
+        assertEquals(morphology.getLemmaList("кошка"), morphology.getLemmaList("КОШКА"));
+        assertEquals(morphology.getLemmaList("елка"), morphology.getLemmaList("Ёлка"));
+        assertEquals(morphology.getLemmaList("еще ежик"), morphology.getLemmaList("ещё ёжик"));
+        assertFalse(morphology.getLemmaList("Ёлка").isEmpty());
+    }
+
+    @Test
+    void hyphenatedAndMixedScriptTokensAreSplitByAlphabet() {
+        assertEquals(morphology.getLemmaList("интернет магазин"), morphology.getLemmaList("интернет-магазин"));
+        assertEquals(morphology.getLemmaList("java разработчик"), morphology.getLemmaList("Java-разработчик"));
+        assertEquals(morphology.getLemmaList("java разработчик"), morphology.getLemmaList("Javaразработчик"));
+        assertTrue(morphology.getLemmaList("Java-разработчик").containsKey("разработчик"));
+    }
+
+    @Test
+    void serviceWordsDigitsAndSymbolsAreNotIndexed() {
+        assertTrue(morphology.getLemmaList("в и на а").isEmpty());
+        assertTrue(morphology.getLemmaList("2024 42 — + ... №5").isEmpty());
+        assertEquals(morphology.getLemmaList("страница"), morphology.getLemmaList("страница 2"));
+    }
+
+    @Test
+    void countsMatchRegexTokenizerOnCleanText() {
+        assertEquals(regexTokenizerLemmas(SAMPLE_TEXT), morphology.getLemmaList(SAMPLE_TEXT));
+    }
+
+    @Test
+    void wordsLostByRegexTokenizerAreNowCounted() {
+        String text = "Сайты, страницы и ёлки: всё индексируется.";
+        Map<String, Integer> regexLemmas = regexTokenizerLemmas(text);
+        Map<String, Integer> lemmas = morphology.getLemmaList(text);
+
+        regexLemmas.forEach((lemma, count) -> assertTrue(lemmas.getOrDefault(lemma, 0) >= count, lemma));
+        assertTrue(lemmas.containsKey("сайт"));
+        assertTrue(lemmas.containsKey("страница"));
+        assertFalse(regexLemmas.containsKey("сайт"));
+    }
+
+    /**
+     * Прежний разбор: split("\\s+"), toLowerCase и проверка слова регулярными выражениями
+     * [а-яА-Я]+ и [a-zA-Z]+; слова, не прошедшие проверку, отбрасывались.
+     */
+    private Map<String, Integer> regexTokenizerLemmas(String text) {
+        Map<String, Integer> lemmaFrequencyMap = new HashMap<>();
+        for (String word : text.split("\\s+")) {
+            String wordInLowerCase = word.toLowerCase();
+            if (wordInLowerCase.matches("[а-яА-Я]+") || wordInLowerCase.matches("[a-zA-Z]+")) {
+                morphology.getLemmaList(wordInLowerCase)
+                        .forEach((lemma, count) -> lemmaFrequencyMap.merge(lemma, count, Integer::sum));
+            }
+        }
+        return lemmaFrequencyMap;
+    }
+}
@@ -0,0 +1,136 @@
+package searchengine.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер сжатия page.content: коэффициент и скорость сжатия и распаковки на одно ядро.
+ * По умолчанию не запускается:
+ * <pre>
+ * mvn test -Dtest=TextCompressionBenchmarkTest -Dbenchmark=true [-Dbenchmark.html-dir=/path/to/pages]
+ * </pre>
+ * Без benchmark.html-dir замер идёт на сгенерированных страницах с фиксированным зерном.
+ * Для цифр, близких к реальным, нужно указать каталог с сохранёнными HTML-страницами.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TextCompressionBenchmarkTest {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Test
+    void measureCompression() throws IOException {
+        List<String> pages = loadPages();
+        long sourceBytes = pages.stream().mapToLong(page -> page.getBytes(StandardCharsets.UTF_8).length).sum();
+
+        List<byte[]> compressed = new ArrayList<>();
+        for (String page : pages) {
+            compressed.add(TextCompression.compress(page));
+        }
+        long compressedBytes = compressed.stream().mapToLong(bytes -> bytes.length).sum();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            compressAll(pages);
+            decompressAll(compressed);
+        }
+        long compressNanos = 0;
+        long decompressNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            compressAll(pages);
+            compressNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            decompressAll(compressed);
+            decompressNanos += System.nanoTime() - start;
+        }
+
+        for (int i = 0; i < pages.size(); i++) {
+            assertEquals(pages.get(i), TextCompression.decompress(compressed.get(i)));
+        }
+        System.out.printf("Страниц: %d, исходный объём %.1f МБ, сжатый %.1f МБ, коэффициент %.1f%n",
+                pages.size(), megabytes(sourceBytes), megabytes(compressedBytes), (double) sourceBytes / compressedBytes);
+        System.out.printf("Сжатие: %.0f МБ/с, распаковка: %.0f МБ/с (по исходному объёму, один поток)%n",
+                megabytes(sourceBytes * MEASURED_ROUNDS) / (compressNanos / 1e9),
+                megabytes(sourceBytes * MEASURED_ROUNDS) / (decompressNanos / 1e9));
+    }
+
+    private static void compressAll(List<String> pages) {
+        for (String page : pages) {
+            TextCompression.compress(page);
+        }
+    }
+
+    private static void decompressAll(List<byte[]> compressed) {
+        for (byte[] bytes : compressed) {
+            TextCompression.decompress(bytes);
+        }
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+
+    private static List<String> loadPages() throws IOException {
+        String directory = System.getProperty("benchmark.html-dir");
+        if (directory == null || directory.isBlank()) {
+            return generatePages(60, 42);
+        }
+        try (Stream<Path> files = Files.walk(Path.of(directory))) {
+            List<String> pages = new ArrayList<>();
+            for (Path file : files.filter(path -> path.toString().endsWith(".html") || path.toString().endsWith(".htm")).toList()) {
+                pages.add(Files.readString(file, StandardCharsets.UTF_8));
+            }
+            return pages;
+        }
+    }
+
+    /**
+     * Страницы с типичной для сайтов разметкой: шапка, меню, карточки со ссылками и текст.
+     */
+    private static List<String> generatePages(int count, long seed) {
+        String[] words = ("поиск страница сайт каталог товар цена доставка новости статья автор город "
+                + "интернет магазин скидка заказ корзина отзыв рейтинг фото видео описание характеристики "
+                + "search page product price delivery news article review rating catalog").split(" ");
+        Random random = new Random(seed);
+        List<String> pages = new ArrayList<>();
+        for (int p = 0; p < count; p++) {
+            StringBuilder html = new StringBuilder(300_000);
+            html.append("<!DOCTYPE html><html lang=\"ru\"><head><meta charset=\"utf-8\"><title>Страница ")
+                    .append(p).append("</title><link rel=\"stylesheet\" href=\"/static/css/main.css?v=")
+                    .append(random.nextInt(1000)).append("\"></head><body><header class=\"site-header\"><nav><ul>");
+            for (int i = 0; i < 40; i++) {
+                html.append("<li class=\"menu-item\"><a href=\"/catalog/").append(words[random.nextInt(words.length)])
+                        .append('/').append(random.nextInt(10_000)).append("\">")
+                        .append(words[random.nextInt(words.length)]).append("</a></li>");
+            }
+            html.append("</ul></nav></header><main>");
+            int cards = 100 + random.nextInt(200);
+            for (int i = 0; i < cards; i++) {
+                html.append("<div class=\"card\" data-id=\"").append(random.nextInt(1_000_000))
+                        .append("\"><a class=\"card__link\" href=\"/product/").append(random.nextInt(1_000_000))
+                        .append("\"><img src=\"/img/").append(Integer.toHexString(random.nextInt()))
+                        .append(".jpg\" alt=\"\"></a><p class=\"card__text\">");
+                int length = 10 + random.nextInt(40);
+                for (int w = 0; w < length; w++) {
+                    html.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                html.append("</p><span class=\"card__price\">").append(random.nextInt(100_000))
+                        .append(" ₽</span></div>\n");
+            }
+            html.append("</main><footer class=\"site-footer\">© 2024</footer></body></html>");
+            pages.add(html.toString());
+        }
+        return pages;
+    }
+}
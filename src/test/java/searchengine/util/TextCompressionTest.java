@@ -0,0 +1,70 @@
+package searchengine.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TextCompressionTest {
+
+    // SELECT HEX(COMPRESS('a')) в MySQL
+    private static final byte[] MYSQL_COMPRESSED_A = {
+            0x01, 0x00, 0x00, 0x00, 0x78, (byte) 0x9C, 0x4B, 0x04, 0x00, 0x00, 0x62, 0x00, 0x62};
+
+    @Test
+    void roundTripKeepsText() {
+        String html = "<html><head><title>Новости</title></head><body>" + "Поисковый движок. ".repeat(500)
+                + "</body></html>";
+
+        assertEquals(html, TextCompression.decompress(TextCompression.compress(html)));
+    }
+
+    @Test
+    void nullAndEmptyArePreserved() {
+        assertNull(TextCompression.compress(null));
+        assertNull(TextCompression.decompress(null));
+        assertArrayEquals(new byte[0], TextCompression.compress(""));
+        assertEquals("", TextCompression.decompress(new byte[0]));
+    }
+
+    @Test
+    void compressedValueHasMysqlLayout() throws Exception {
+        String text = "Проверка формата COMPRESS(): длина и поток zlib";
+        byte[] source = text.getBytes(StandardCharsets.UTF_8);
+
+        byte[] compressed = TextCompression.compress(text);
+
+        int length = (compressed[0] & 0xff)
+                | (compressed[1] & 0xff) << 8
+                | (compressed[2] & 0xff) << 16
+                | (compressed[3] & 0xff) << 24;
+        assertEquals(source.length, length);
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(Arrays.copyOfRange(compressed, 4, compressed.length));
+        byte[] inflated = new byte[length];
+        assertEquals(length, inflater.inflate(inflated));
+        inflater.end();
+        assertArrayEquals(source, inflated);
+    }
+
+    @Test
+    void readsAndWritesMysqlCompressOutput() {
+        assertEquals("a", TextCompression.decompress(MYSQL_COMPRESSED_A));
+        assertArrayEquals(MYSQL_COMPRESSED_A, TextCompression.compress("a"));
+    }
+
+    @Test
+    void truncatedValueIsRejected() {
+        byte[] compressed = TextCompression.compress("Повреждённые данные ".repeat(100));
+
+        assertThrows(IllegalStateException.class,
+                () -> TextCompression.decompress(Arrays.copyOf(compressed, compressed.length / 2)));
+    }
+}